@@ -0,0 +1,24 @@
+package com.bilante.fightgame;
+
+/** builds the arenas the benchmarks run on **/
+class BenchmarkArena {
+    static final long SEED = 42; // same arena and same bounces on every run
+
+    /**
+     * @param count number of players
+     * @param density share of the arena area covered by the circles, the arena is sized from it
+     * @return a started arena, stepped once so the per tick scratch holds real values
+     */
+    static GameBox populated(int count, double density) {
+        double circleArea = Math.PI * CONST.PLAYER_RADIUS * CONST.PLAYER_RADIUS;
+        double side = Math.sqrt(count * circleArea / density);
+        GameBox gameBox = new GameBox(side, side, SEED);
+        gameBox.mirrorPlayers = false;
+        for (int i = 0; i < count; i++) {
+            gameBox.addPlayer("PLAYER " + (i + 1), 1_000_000, CONST.damagesFromPoints(1 + i % 8), CONST.speedFromPoints(i % 9));
+        }
+        gameBox.placePlayersOnGrid();
+        gameBox.step(CONST.FIXED_STEP);
+        return gameBox;
+    }
+}
@@ -0,0 +1,41 @@
+package com.bilante.fightgame;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** whole ticks and the collision phase, by entity count and density **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EngineBenchmark {
+
+    @Param({"5", "100", "1000", "10000", "100000"})
+    int count;
+
+    @Param({"0.01", "0.1", "0.3"})
+    double density;
+
+    GameBox gameBox;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // players never die, the arena keeps its population for the whole run
+        gameBox = BenchmarkArena.populated(count, density);
+    }
+
+    @Benchmark
+    public WorldState updatePlayers() {
+        gameBox.step(CONST.FIXED_STEP);
+        return gameBox.world;
+    }
+
+    @Benchmark
+    public int checkPlayerCollisions() {
+        gameBox.checkPlayerCollisions();
+        return gameBox.contactPairs;
+    }
+}
@@ -0,0 +1,59 @@
+package com.bilante.fightgame;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/** target picking after a bounce, one call per entity per op **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeometryBenchmark {
+
+    @Param({"5", "1000", "100000"})
+    int count;
+
+    @Param({"0.1"})
+    double density;
+
+    GameBox gameBox;
+    double[] directionX;
+    double[] directionY;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        gameBox = BenchmarkArena.populated(count, density);
+        WorldState world = gameBox.world;
+        directionX = new double[count];
+        directionY = new double[count];
+        for (int i = 0; i < count; i++) {
+            double angle = 2 * Math.PI * i / count;
+            directionX[i] = Math.cos(angle);
+            directionY[i] = Math.sin(angle);
+            // pair every entity with its neighbour in id order, they sit next to each other on the lattice
+            world.otherIndex[i] = (i + 1) % count;
+            world.leadX[i] = directionX[i];
+            world.leadY[i] = directionY[i];
+        }
+    }
+
+    @Benchmark
+    public void findTargetOnWall(Blackhole bh) {
+        for (int i = 0; i < count; i++) {
+            gameBox.findTargetOnWall(i, directionX[i], directionY[i]);
+        }
+        bh.consume(gameBox.world.targetX);
+    }
+
+    @Benchmark
+    public void handlePlayerReflection(Blackhole bh) {
+        for (int i = 0; i < count; i++) {
+            gameBox.handlePlayerReflection(i);
+        }
+        bh.consume(gameBox.world.targetX);
+    }
+}
@@ -0,0 +1,38 @@
+package com.bilante.fightgame;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** the collision phase with the scalar and the vector kernels, up to arenas packed tighter than the circles **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class NarrowPhaseBenchmark {
+
+    @Param({"scalar", "vector"})
+    String kernel;
+
+    @Param({"5", "1000", "100000"})
+    int count;
+
+    @Param({"0.1", "0.3", "3"})
+    double density;
+
+    GameBox gameBox;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        gameBox = BenchmarkArena.populated(count, density);
+        gameBox.narrowPhase = kernel.equals("vector") ? new VectorNarrowPhase() : new NarrowPhase();
+    }
+
+    @Benchmark
+    public int checkPlayerCollisions() {
+        gameBox.checkPlayerCollisions();
+        return gameBox.contactPairs;
+    }
+}
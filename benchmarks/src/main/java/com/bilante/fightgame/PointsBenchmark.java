@@ -0,0 +1,40 @@
+package com.bilante.fightgame;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/** point to stat conversions of CONST, over every legal amount of points **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PointsBenchmark {
+
+    int[] points;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        points = new int[CONST.SHARED_POINTS];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = i;
+        }
+    }
+
+    @Benchmark
+    public void damagesFromPoints(Blackhole bh) {
+        for (int p : points) {
+            bh.consume(CONST.damagesFromPoints(p));
+        }
+    }
+
+    @Benchmark
+    public void speedFromPoints(Blackhole bh) {
+        for (int p : points) {
+            bh.consume(CONST.speedFromPoints(p));
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.bilante.fightgame;
+
+import javafx.scene.layout.Pane;
+
+/** draws the players of a match on the arena pane from the snapshots of its ticks, once per pulse **/
+public interface ArenaRenderer {
+    String PROPERTY = "fightgame.renderer"; // nodes (default) or canvas
+
+    /** adds whatever the renderer needs to the arena for `players` players in a `width` x `height` arena **/
+    void start(Pane arena, double width, double height, int players);
+
+    /** @param alpha how far between the previous positions of `snapshot` and its own to draw, 0 to 1 **/
+    void render(WorldSnapshot snapshot, double alpha);
+
+    /** removes from the arena everything {@link #start} added **/
+    void stop();
+
+    /** @return the renderer named by the {@value #PROPERTY} system property **/
+    static ArenaRenderer fromSettings() {
+        String name = System.getProperty(PROPERTY, "nodes");
+        return switch (name) {
+            case "nodes" -> new NodeRenderer();
+            case "canvas" -> new CanvasRenderer();
+            default -> throw new IllegalArgumentException("Unknown renderer " + name + ", expected nodes or canvas");
+        };
+    }
+}
@@ -1,7 +1,5 @@
 package com.bilante.fightgame;
 
-import javafx.scene.paint.Color;
-
 public class CONST {
     public static final int MAX_PLAYERS = 5;
     public static final int SHARED_POINTS = 10;
@@ -10,13 +8,7 @@ public class CONST {
     public static final double startLineRadius = 75;
     public static final double GAME_WIDTH = 500;
     public static final double GAME_HEIGHT = 500;
-    public static final Color[] colors = {
-            Color.rgb(35, 199, 0),
-            Color.rgb(0, 199, 146),
-            Color.rgb(206, 16, 16),
-            Color.rgb(118, 10, 122),
-            Color.rgb(150, 50, 10)
-    };
+    public static final double FIXED_STEP = 1.0 / 60.0; // simulated seconds per engine tick
 
     /** @param points : the share of points of the given 10 that goes to damage evaluation
      *                we use the rule that follows : there is a minimum of one point on damage
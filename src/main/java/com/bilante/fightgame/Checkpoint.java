@@ -0,0 +1,89 @@
+package com.bilante.fightgame;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The state of a {@link GameBox} between two steps, to play on from that moment as many times as wanted: "what if"
+ * questions, Monte Carlo rollouts from an interesting moment. Everything a step reads is here as flat copies of the
+ * entity columns (positions, targets, HP, damage, speed, hit stamps, deaths) plus the tick count, the random state and
+ * the alive counters, so taking one or forking one is a few array copies whatever the arena holds.
+ *
+ * The {@link Player} objects and the strategies are shared, not copied: a fork reads the names of the players only and
+ * strategies keep no state. Listeners are not part of the state, a fork starts without any.
+ */
+public class Checkpoint {
+    final double width;
+    final double height;
+    final long seed;
+    final long ticks;
+    final long randomState;
+    final int size;
+    final double[] x;
+    final double[] y;
+    final double[] targetX;
+    final double[] targetY;
+    final double[] health;
+    final double[] damage;
+    final int[] speed;
+    final long[] lastHit;
+    final boolean[] dead;
+    final int aliveCount;
+    final long aliveIdSum;
+    final boolean over;
+    final List<Player> players;
+    final Strategy[] strategies;
+    // of the match the checkpoint was taken from, see Match#checkpoint()
+    final double step;
+    final double[] deathTimes; // null when taken from a bare GameBox
+
+    Checkpoint(GameBox gameBox, double step, double[] deathTimes) {
+        WorldState w = gameBox.world;
+        int n = w.size;
+        width = gameBox.width;
+        height = gameBox.height;
+        seed = gameBox.seed;
+        ticks = gameBox.ticks;
+        randomState = gameBox.random.state;
+        size = n;
+        x = Arrays.copyOf(w.x, n);
+        y = Arrays.copyOf(w.y, n);
+        targetX = Arrays.copyOf(w.targetX, n);
+        targetY = Arrays.copyOf(w.targetY, n);
+        health = Arrays.copyOf(w.health, n);
+        damage = Arrays.copyOf(w.damage, n);
+        speed = Arrays.copyOf(w.speed, n);
+        lastHit = Arrays.copyOf(w.lastHit, n);
+        dead = Arrays.copyOf(w.dead, n);
+        aliveCount = gameBox.aliveCount;
+        aliveIdSum = gameBox.aliveIdSum;
+        over = gameBox.over;
+        players = List.copyOf(gameBox.players);
+        strategies = Arrays.copyOf(gameBox.strategies, gameBox.strategies.length);
+        this.step = step;
+        this.deathTimes = deathTimes;
+    }
+
+    /** @return the tick the checkpoint was taken after **/
+    public long tick() {
+        return ticks;
+    }
+
+    /** @return a headless arena in the state of the checkpoint, it plays the same continuation as the original **/
+    public GameBox fork() {
+        return fork(seed, randomState);
+    }
+
+    /** @return a headless arena in the state of the checkpoint, its random targets drawn from `seed` from now on **/
+    public GameBox fork(long seed) {
+        return fork(seed, seed);
+    }
+
+    private GameBox fork(long seed, long randomState) {
+        GameBox gameBox = new GameBox(width, height, seed);
+        gameBox.mirrorPlayers = false;
+        gameBox.restore(this);
+        gameBox.random.state = randomState;
+        return gameBox;
+    }
+}
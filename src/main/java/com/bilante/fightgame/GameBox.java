@@ -1,239 +1,600 @@
 package com.bilante.fightgame;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class GameBox {
-    long lastUpdateTime = System.currentTimeMillis();
+    long ticks = 0; // fixed steps simulated so far, also the stamp of the hits of a step
     List<Player> players;
-    private static final double MIN_TARGET_DISTANCE = 2.0; // Minimum distance to prevent getting stuck
+    final WorldState world;
+    final double width;
+    final double height;
+    SpatialGrid grid; // replaced by a coarser one when a step moves the players further than its cells allow
+    int candidatePairs = 0; // broad phase pairs of the last step
+    NarrowPhase narrowPhase = NarrowPhase.fromSettings();
+    Strategy[] strategies = new Strategy[0]; // by id, null for the players who wander
+    int strategyCount = 0;
+    NeighbourIndex neighbours; // built for the strategies, once there are some
+    volatile TickStats stats; // counters of the last ticks for the HUD, null when nobody looks at them
+    int contactPairs = 0; // pairs touching during the last step, narrowPhase.contacts
+    double[] contactTime = new double[64]; // fraction of the step each contact pair touches at
+    /** copy the world back into the {@link Player} objects after each step, the UI reads them. Headless runs read the world **/
+    boolean mirrorPlayers = true;
+    final long seed;
+    final MatchRandom random;
+    final List<GameListener> listeners = new ArrayList<>();
+    int aliveCount = 0;
+    long aliveIdSum = 0; // sum of the ids still alive, the survivor's id once a single one is left
+    boolean over = false;
+    static final double MIN_TARGET_DISTANCE = 2.0; // Minimum distance to prevent getting stuck
+    private static final double NO_IMPACT = 2; // impact time past the end of the step
 
     public GameBox() {
+        this(CONST.GAME_WIDTH, CONST.GAME_HEIGHT, MatchRandom.freshSeed());
+    }
+
+    /** arena of the given size, the UI uses {@link CONST#GAME_WIDTH} x {@link CONST#GAME_HEIGHT} **/
+    public GameBox(double width, double height, long seed) {
+        this.width = width;
+        this.height = height;
+        this.seed = seed;
+        this.random = new MatchRandom(seed);
         players = new ArrayList<>();
+        world = new WorldState();
+        grid = new SpatialGrid(width, height);
     }
 
-    public void updatePlayers() {
-        long now = System.currentTimeMillis();
-        double deltaTime = (now - lastUpdateTime) / 1000.0;
-        lastUpdateTime = now;
-        List<Position> leadVectors = new ArrayList<>();
-        List<Position> intendedPositions = new ArrayList<>();
+    /** adds a player standing on the center point, {@link #placePlayersOnStart()} spreads them before the first step **/
+    public Player addPlayer(String name, double healthPoints, double damage, int speed) {
+        Player p = new Player(
+                name,
+                healthPoints,
+                damage,
+                speed,
+                new Position(CONST.centerXY[0], CONST.centerXY[1]),
+                new Position(CONST.centerXY[0], CONST.centerXY[1])
+        );
+        p.id = world.add(p.current.x, p.current.y, p.target.x, p.target.y, healthPoints, damage, speed, p.lastHit);
+        if (healthPoints <= 0) {
+            world.dead[p.id] = true; // enters dead, never counted
+            p.dead = true;
+        } else {
+            aliveCount++;
+            aliveIdSum += p.id;
+        }
+        players.add(p);
+        return p;
+    }
+
+    /** has player `id` steered by `strategy` from the next step on, null to let it wander **/
+    public void setStrategy(int id, Strategy strategy) {
+        if (strategies.length <= id) strategies = Arrays.copyOf(strategies, Math.max(id + 1, world.size));
+        if (strategies[id] != null) strategyCount--;
+        strategies[id] = strategy;
+        if (strategy != null) strategyCount++;
+    }
 
-        for (Player player : players) {
-            Position leadVector = getLeadVector(player);
-            Position intended = calculateNextStep(player, leadVector, deltaTime);
+    /** @return true if some player follows a {@link Strategy} **/
+    public boolean hasStrategies() {
+        return strategyCount > 0;
+    }
 
-            leadVectors.add(leadVector);
-            intendedPositions.add(intended);
+    public void addListener(GameListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(GameListener listener) {
+        listeners.remove(listener);
+    }
+
+    public void clear() {
+        players.clear();
+        world.clear();
+        ticks = 0;
+        Arrays.fill(strategies, null);
+        strategyCount = 0;
+        neighbours = null; // sized for the next roster
+        aliveCount = 0;
+        aliveIdSum = 0;
+        over = false;
+    }
+
+    /**
+     * @param step simulated seconds per tick the arena is stepped with, what a {@link Match} forked from it steps with
+     * @return the state of the arena now, to {@link Checkpoint#fork} continuations from
+     */
+    public Checkpoint checkpoint(double step) {
+        return new Checkpoint(this, step, null);
+    }
+
+    /** puts the arena back in the state of `checkpoint`, random state included. Listeners stay **/
+    public void restore(Checkpoint checkpoint) {
+        if (checkpoint.width != width || checkpoint.height != height) {
+            throw new IllegalArgumentException("Checkpoint of a " + checkpoint.width + " x " + checkpoint.height + " arena");
+        }
+        int n = checkpoint.size;
+        WorldState w = world;
+        if (n != w.size) neighbours = null; // sized for the previous roster
+        w.ensureCapacity(n);
+        System.arraycopy(checkpoint.x, 0, w.x, 0, n);
+        System.arraycopy(checkpoint.y, 0, w.y, 0, n);
+        System.arraycopy(checkpoint.targetX, 0, w.targetX, 0, n);
+        System.arraycopy(checkpoint.targetY, 0, w.targetY, 0, n);
+        System.arraycopy(checkpoint.health, 0, w.health, 0, n);
+        System.arraycopy(checkpoint.damage, 0, w.damage, 0, n);
+        System.arraycopy(checkpoint.speed, 0, w.speed, 0, n);
+        System.arraycopy(checkpoint.lastHit, 0, w.lastHit, 0, n);
+        System.arraycopy(checkpoint.dead, 0, w.dead, 0, n);
+        w.size = n;
+        players = new ArrayList<>(checkpoint.players);
+        strategies = Arrays.copyOf(checkpoint.strategies, checkpoint.strategies.length);
+        strategyCount = 0;
+        for (Strategy strategy : strategies) {
+            if (strategy != null) strategyCount++;
+        }
+        ticks = checkpoint.ticks;
+        random.state = checkpoint.randomState;
+        aliveCount = checkpoint.aliveCount;
+        aliveIdSum = checkpoint.aliveIdSum;
+        over = checkpoint.over;
+        candidatePairs = 0;
+        contactPairs = 0;
+        if (mirrorPlayers) {
+            mirrorToPlayers();
+            for (int i = 0; i < players.size(); i++) {
+                players.get(i).dead = w.dead[players.get(i).id]; // may have been alive back then
+            }
         }
+    }
 
-        List<CollisionResult> collisionResults = new ArrayList<>();
-        for (int i = 0; i < players.size(); i++) {
-            Player player = players.get(i);
-            Position leadVector = leadVectors.get(i);
-            Position intended = intendedPositions.get(i);
+    public int aliveCount() {
+        return aliveCount;
+    }
+
+    /** @return true once fewer than two players are alive **/
+    public boolean isOver() {
+        return aliveCount < 2;
+    }
+
+    /** @return the id of the last player alive, -1 while several are or if nobody is **/
+    public int survivor() {
+        return aliveCount == 1 ? (int) aliveIdSum : -1;
+    }
 
-            CollisionResult collision = checkCollisions(player.current, intended, i, intendedPositions);
-            collisionResults.add(collision);
+    /** puts every player on the start line and aims it at the wall facing its slot **/
+    public void placePlayersOnStart() {
+        int nbPlayers = players.size();
+        List<Position> positionsAtStart = getCirclePoints(nbPlayers, CONST.startLineRadius, CONST.centerXY[0], CONST.centerXY[1]);
+        List<Position> targetsAtStart = computeEdgeTargetsFromCenter(CONST.centerXY[0], CONST.centerXY[1], CONST.GAME_WIDTH, nbPlayers);
+        for (int i = 0; i < nbPlayers; i++) {
+            Player player = players.get(i);
+            player.setCurrent(positionsAtStart.get(i));
+            player.setTarget(targetsAtStart.get(i));
+            world.x[player.id] = player.current.x;
+            world.y[player.id] = player.current.y;
+            world.targetX[player.id] = player.target.x;
+            world.targetY[player.id] = player.target.y;
         }
-        for (int i = 0; i < players.size(); i++) {
-            CollisionResult collision = collisionResults.get(i);
-            Position leadVector = leadVectors.get(i);
-            Position intended = intendedPositions.get(i);
+    }
+
+    /** lays the players out on a lattice covering the arena, for rosters too big for the start line **/
+    public void placePlayersOnGrid() {
+        int nbPlayers = players.size();
+        int columns = (int) Math.ceil(Math.sqrt(nbPlayers * width / height));
+        int rows = (int) Math.ceil((double) nbPlayers / columns);
+        double cellWidth = width / columns;
+        double cellHeight = height / rows;
+        for (int i = 0; i < nbPlayers; i++) {
             Player player = players.get(i);
-            if (collision.hasCollision) {
-                player.current = collision.collisionPoint;
-                player.target = computeNextTarget(leadVector, collision);
-                if (collision.otherPlayerIndex != -1) {
-                    if (player.lastHit.compareTo(players.get(collision.otherPlayerIndex).lastHit) < 0 && !players.get(collision.otherPlayerIndex).dead) {
-                        player.setHealthPoints(player.healthPoints - players.get(collision.otherPlayerIndex).damage);
-                    }
-                }
-                player.lastHit.setTime(now);
+            int id = player.id;
+            world.x[id] = (i % columns + 0.5) * cellWidth;
+            world.y[id] = (i / columns + 0.5) * cellHeight;
+            generateRandomTarget(id);
+            player.current.x = world.x[id];
+            player.current.y = world.y[id];
+            player.target.x = world.targetX[id];
+            player.target.y = world.targetY[id];
+        }
+    }
+
+    /** @param deltaTime seconds simulated by this step, {@link CONST#FIXED_STEP} everywhere but in tests of other steps **/
+    public void step(double deltaTime) {
+        EngineEvents.Tick tickEvent = null;
+        if (EngineEvents.TICK.isEnabled()) {
+            tickEvent = new EngineEvents.Tick();
+            tickEvent.begin();
+        }
+        TickStats stats = this.stats;
+        if (stats != null) stats.begin();
+        long now = ++ticks;
+        WorldState w = world;
+        int n = w.size;
+
+        if (strategyCount > 0) steer();
+        for (int i = 0; i < n; i++) {
+            w.leadX[i] = w.targetX[i] - w.x[i];
+            w.leadY[i] = w.targetY[i] - w.y[i];
+            calculateNextStep(i, deltaTime);
+        }
+
+        checkPlayerCollisions();
+        for (int i = 0; i < n; i++) {
+            checkCollisions(i);
+        }
+        // move everyone first, so a reflection sees the other player where it stopped
+        for (int i = 0; i < n; i++) {
+            if (w.hasCollision[i]) {
+                w.x[i] = w.collisionX[i];
+                w.y[i] = w.collisionY[i];
             } else {
-                player.current = intended; // Only update if no collision
+                w.x[i] = w.intendedX[i]; // Only update if no collision
+                w.y[i] = w.intendedY[i];
+            }
+        }
+        boolean wallEvents = EngineEvents.WALL_BOUNCE.isEnabled();
+        for (int i = 0; i < n; i++) {
+            if (w.hasCollision[i]) {
+                computeNextTarget(i);
+                if (wallEvents && w.otherIndex[i] == -1) EngineEvents.wallBounce(now, i, w.x[i], w.y[i]);
+            }
+        }
+        resolveContacts(now);
+        for (int i = 0; i < n; i++) {
+            if (w.hasCollision[i]) w.lastHit[i] = now;
+        }
+        endIfOver();
+
+        if (mirrorPlayers) {
+            mirrorToPlayers();
+        }
+        for (int l = 0; l < listeners.size(); l++) {
+            listeners.get(l).onTick(this);
+        }
+        if (stats != null) stats.end(this);
+        if (tickEvent != null) {
+            tickEvent.tick = now;
+            tickEvent.entities = n;
+            tickEvent.candidatePairs = candidatePairs;
+            tickEvent.contactPairs = contactPairs;
+            tickEvent.commit();
+        }
+    }
+
+    /** lets every living player with a strategy pick its target, on one neighbour index shared by all of them **/
+    private void steer() {
+        WorldState w = world;
+        if (neighbours == null) neighbours = new NeighbourIndex(width, height, w.size);
+        neighbours.rebuild(w);
+        for (int i = 0; i < strategies.length; i++) {
+            if (strategies[i] != null && !w.dead[i]) strategies[i].steer(this, i, neighbours);
+        }
+    }
+
+    /**
+     * Applies the damage of every contact pair of the step, both ways. A pair counts if it touches before either
+     * player stopped; three or more players piling up make as many pairs. Each side uses the state from before
+     * the step: a player takes the damage of the other unless it bounced more recently than the other (the lastHit
+     * stamps), or the other was dead already. The damage of all pairs is summed before any HP changes, so no pair
+     * depends on the order the others are resolved in.
+     */
+    private void resolveContacts(long now) {
+        WorldState w = world;
+        long[] contacts = narrowPhase.contacts;
+        boolean hitEvents = EngineEvents.HIT.isEnabled();
+        for (int p = 0; p < contactPairs; p++) {
+            if (!counts(p)) continue;
+            int a = NarrowPhase.first(contacts[p]);
+            int b = NarrowPhase.second(contacts[p]);
+            double damageToA = w.lastHit[a] <= w.lastHit[b] && !w.dead[b] ? w.damage[b] : 0;
+            double damageToB = w.lastHit[b] <= w.lastHit[a] && !w.dead[a] ? w.damage[a] : 0;
+            w.damageTaken[a] += damageToA;
+            w.damageTaken[b] += damageToB;
+            if (hitEvents) {
+                EngineEvents.hit(now, a, b, damageToA, w.health[a] - w.damageTaken[a]);
+                EngineEvents.hit(now, b, a, damageToB, w.health[b] - w.damageTaken[b]);
+            }
+        }
+        for (int p = 0; p < contactPairs; p++) {
+            applyDamage(NarrowPhase.first(contacts[p]));
+            applyDamage(NarrowPhase.second(contacts[p]));
+        }
+    }
+
+    /** @return false if a player of contact pair `p` of the last step stopped on something else before they touched **/
+    boolean counts(int p) {
+        long contact = narrowPhase.contacts[p];
+        double t = contactTime[p];
+        return t <= world.stopTime[NarrowPhase.first(contact)] && t <= world.stopTime[NarrowPhase.second(contact)];
+    }
+
+    private void applyDamage(int i) {
+        double damage = world.damageTaken[i];
+        if (damage == 0) return;
+        world.damageTaken[i] = 0;
+        setHealth(i, world.health[i] - damage);
+    }
+
+    void setHealth(int id, double healthPoints) {
+        double oldHealth = world.health[id];
+        world.health[id] = healthPoints;
+        boolean died = healthPoints <= 0 && !world.dead[id];
+        if (died) {
+            world.dead[id] = true;
+            aliveCount--;
+            aliveIdSum -= id;
+            if (EngineEvents.DEATH.isEnabled()) EngineEvents.death(ticks, id, aliveCount);
+        }
+        if (oldHealth != healthPoints) {
+            for (int l = 0; l < listeners.size(); l++) {
+                listeners.get(l).onHealthChanged(id, oldHealth, healthPoints);
             }
         }
     }
 
-    private Position getLeadVector(Player player) {
-        double dx = player.target.x - player.current.x;
-        double dy = player.target.y - player.current.y;
-        return new Position(dx, dy);
+    /**
+     * fires the game over event once fewer than two players are left. Called after a whole batch of HP changes, so
+     * players dying together end the game with nobody left instead of the second one winning
+     */
+    void endIfOver() {
+        if (aliveCount >= 2 || over) return;
+        over = true;
+        int survivor = survivor();
+        for (int l = 0; l < listeners.size(); l++) {
+            listeners.get(l).onGameOver(survivor);
+        }
     }
 
-    private Position calculateNextStep(Player player, Position leadVector, double deltaTime) {
-        double distance = Math.sqrt(leadVector.x * leadVector.x + leadVector.y * leadVector.y);
+    /** writes the world into the existing {@link Player} objects in place **/
+    void mirrorToPlayers() {
+        for (int i = 0; i < players.size(); i++) {
+            Player player = players.get(i);
+            int id = player.id;
+            player.current.x = world.x[id];
+            player.current.y = world.y[id];
+            player.target.x = world.targetX[id];
+            player.target.y = world.targetY[id];
+            player.lastHit = world.lastHit[id];
+            if (player.healthPoints != world.health[id]) {
+                player.setHealthPoints(world.health[id]);
+            }
+        }
+    }
+
+    /** writes the intended position of entity `i` for this step, may pick a new target if it reached the current one **/
+    private void calculateNextStep(int i, double deltaTime) {
+        WorldState w = world;
+        double leadX = w.leadX[i];
+        double leadY = w.leadY[i];
+        double distance = Math.sqrt(leadX * leadX + leadY * leadY);
 
         // If very close to target, generate a new random target to prevent getting stuck
         if (distance < MIN_TARGET_DISTANCE) {
-            player.target = generateRandomTarget();
+            generateRandomTarget(i);
             // Recalculate with new target
-            double newDx = player.target.x - player.current.x;
-            double newDy = player.target.y - player.current.y;
-            distance = Math.sqrt(newDx * newDx + newDy * newDy);
-            leadVector = new Position(newDx, newDy);
+            leadX = w.targetX[i] - w.x[i];
+            leadY = w.targetY[i] - w.y[i];
+            distance = Math.sqrt(leadX * leadX + leadY * leadY);
         }
 
         if (distance == 0) {
-            return new Position(player.current.x, player.current.y);
+            w.intendedX[i] = w.x[i];
+            w.intendedY[i] = w.y[i];
+            return;
         }
 
-        double step = player.speed * deltaTime;
+        double step = w.speed[i] * deltaTime;
         double ratio = Math.min(step / distance, 1.0); // Don't overshoot target
 
-        return new Position(
-                player.current.x + leadVector.x * ratio,
-                player.current.y + leadVector.y * ratio
-        );
+        w.intendedX[i] = w.x[i] + leadX * ratio;
+        w.intendedY[i] = w.y[i] + leadY * ratio;
     }
 
-    private Position generateRandomTarget() {
+    /** sets a random target of entity `i` inside the arena **/
+    void generateRandomTarget(int i) {
         double radius = CONST.PLAYER_RADIUS;
         double minX = radius;
-        double maxX = CONST.GAME_WIDTH - radius;
+        double maxX = width - radius;
         double minY = radius;
-        double maxY = CONST.GAME_HEIGHT - radius;
+        double maxY = height - radius;
 
-        double x = minX + Math.random() * (maxX - minX);
-        double y = minY + Math.random() * (maxY - minY);
-
-        return new Position(x, y);
+        world.targetX[i] = minX + random.nextDouble() * (maxX - minX);
+        world.targetY[i] = minY + random.nextDouble() * (maxY - minY);
     }
 
-    private CollisionResult checkCollisions(Position current, Position intended, int playerIndex, List<Position> allIntendedPositions) {
-        // Check wall collisions first
-        CollisionResult wallCollision = checkWallCollision(intended);
-        if (wallCollision.hasCollision) {
-            return wallCollision;
+    /** keeps the first thing entity `i` runs into during the step: a wall or the player of world.contact **/
+    void checkCollisions(int i) {
+        WorldState w = world;
+        double wallTime = wallImpactTime(i);
+        int other = w.contact[i];
+        w.stopTime[i] = Math.min(wallTime, w.impactTime[i]);
+        if (other != Integer.MAX_VALUE && w.impactTime[i] < wallTime) {
+            // Stop where the two circles first touch
+            double t = w.impactTime[i];
+            w.hasCollision[i] = true;
+            w.collisionX[i] = w.x[i] + (w.intendedX[i] - w.x[i]) * t;
+            w.collisionY[i] = w.y[i] + (w.intendedY[i] - w.y[i]) * t;
+            w.otherIndex[i] = other;
+        } else if (wallTime != NO_IMPACT) {
+            // Stop on the wall, clamped against rounding
+            double radius = CONST.PLAYER_RADIUS;
+            w.hasCollision[i] = true;
+            w.collisionX[i] = Math.max(radius, Math.min(width - radius, w.x[i] + (w.intendedX[i] - w.x[i]) * wallTime));
+            w.collisionY[i] = Math.max(radius, Math.min(height - radius, w.y[i] + (w.intendedY[i] - w.y[i]) * wallTime));
+            w.otherIndex[i] = -1;
+        } else {
+            w.hasCollision[i] = false;
+            w.otherIndex[i] = -1;
         }
-        // Check player collisions
-        CollisionResult playerCollision = checkPlayerCollisions(current, intended, playerIndex, allIntendedPositions);
-
-        return playerCollision;
     }
 
-    private CollisionResult checkWallCollision(Position intended) {
+    /** @return the fraction of the step at which entity `i` touches a wall, NO_IMPACT if it doesn't **/
+    private double wallImpactTime(int i) {
+        WorldState w = world;
         double radius = CONST.PLAYER_RADIUS;
-        Position collisionPoint = new Position(intended.x, intended.y); // Start with intended position
-        boolean collision = false;
+        double time = NO_IMPACT;
+        time = Math.min(time, axisImpactTime(w.x[i], w.intendedX[i], radius, width - radius));
+        time = Math.min(time, axisImpactTime(w.y[i], w.intendedY[i], radius, height - radius));
+        return time;
+    }
 
-        if (intended.x + radius >= CONST.GAME_WIDTH) { // right wall
-            collision = true;
-            collisionPoint.x = CONST.GAME_WIDTH - radius;
-        }
-        if (intended.y + radius >= CONST.GAME_HEIGHT) { // top wall
-            collision = true;
-            collisionPoint.y = CONST.GAME_HEIGHT - radius;
-        }
-        if (intended.x - radius <= 0) { // left wall
-            collision = true;
-            collisionPoint.x = radius;
-        }
-        if (intended.y - radius <= 0) { // bottom wall
-            collision = true;
-            collisionPoint.y = radius;
+    /** @return when a move from `from` to `to` reaches `min` or `max` on one axis, NO_IMPACT if it stays inside **/
+    private static double axisImpactTime(double from, double to, double min, double max) {
+        double bound;
+        if (to >= max) {
+            bound = max;
+        } else if (to <= min) {
+            bound = min;
+        } else {
+            return NO_IMPACT;
         }
-
-        return new CollisionResult(collision, collisionPoint, -1);
+        double move = to - from;
+        if (move == 0) return 0; // standing on the wall
+        return Math.max(0, (bound - from) / move);
     }
 
-    private CollisionResult checkPlayerCollisions(Position current, Position intended, int playerIndex, List<Position> allIntendedPositions) {
+    /**
+     * Broad phase on the spatial grid, then the swept test on the candidate pairs only. Each circle moves in a
+     * straight line from its position to its intended position, so a pair touches at the first root of
+     * |d + t * v| = 2 * radius with d the start offset and v the relative move, t in [0, 1]. Fast players can't
+     * pass through each other however long the step is.
+     * The tests themselves run in {@link NarrowPhase}, one entity against a run of neighbours at a time, and give
+     * the touching pairs in id order; each pair is tested once, for both of its players.
+     * Fills world.contact with the first entity each one touches (lowest id on ties) and world.impactTime with when,
+     * and contactTime with when each pair of narrowPhase.contacts touches.
+     */
+    void checkPlayerCollisions() {
+        WorldState w = world;
+        int n = w.size;
         double radius = CONST.PLAYER_RADIUS;
         double minSquaredDistance = radius * radius * 4;
 
-        for (int i = 0; i < allIntendedPositions.size(); i++) {
-            if (i == playerIndex) continue;
-
-            Position otherIntended = allIntendedPositions.get(i);
-
-            // Calculate distance between intended positions
-            double dx = intended.x - otherIntended.x;
-            double dy = intended.y - otherIntended.y;
-            double squaredDistance = dx * dx + dy * dy;
-
-            if (squaredDistance < minSquaredDistance) {
-                // Find collision point along the movement path
-                Position collisionPoint = findCollisionPoint(current, intended, players.get(i).current, otherIntended, radius);
-                return new CollisionResult(true, collisionPoint, i);
+        double longestMove = 0;
+        for (int i = 0; i < n; i++) {
+            w.contact[i] = Integer.MAX_VALUE;
+            w.impactTime[i] = NO_IMPACT;
+            double moveX = w.intendedX[i] - w.x[i];
+            double moveY = w.intendedY[i] - w.y[i];
+            longestMove = Math.max(longestMove, moveX * moveX + moveY * moveY);
+            w.midX[i] = w.x[i] + moveX * 0.5;
+            w.midY[i] = w.y[i] + moveY * 0.5;
+        }
+        // two paths that touch have their middles at most a diameter plus a longest move apart
+        double reach = 2 * radius + Math.sqrt(longestMove);
+        if (reach > grid.cellSize) {
+            grid = new SpatialGrid(width, height, Math.ceil(reach / radius) * radius);
+        }
+        boolean sparse = grid.isSparse(n);
+        if (sparse) {
+            grid.identity(n);
+        } else {
+            grid.build(w.midX, w.midY, n);
+        }
+        grid.gather(w.x, w.y, w.intendedX, w.intendedY, n);
+        contactPairs = narrowPhase.collect(grid, n, sparse, minSquaredDistance);
+        candidatePairs = narrowPhase.candidateCount;
+
+        if (contactTime.length < contactPairs) contactTime = new double[narrowPhase.contacts.length];
+        long[] contacts = narrowPhase.contacts;
+        for (int p = 0; p < contactPairs; p++) {
+            int a = NarrowPhase.first(contacts[p]);
+            int b = NarrowPhase.second(contacts[p]);
+            double dx = w.x[a] - w.x[b];
+            double dy = w.y[a] - w.y[b];
+            double vx = (w.intendedX[a] - w.x[a]) - (w.intendedX[b] - w.x[b]);
+            double vy = (w.intendedY[a] - w.y[a]) - (w.intendedY[b] - w.y[b]);
+            double t = impactTime(dx, dy, vx, vy, minSquaredDistance);
+            contactTime[p] = t;
+            if (t < w.impactTime[a] || (t == w.impactTime[a] && b < w.contact[a])) {
+                w.contact[a] = b;
+                w.impactTime[a] = t;
+            }
+            if (t < w.impactTime[b] || (t == w.impactTime[b] && a < w.contact[b])) {
+                w.contact[b] = a;
+                w.impactTime[b] = t;
             }
         }
-
-        return new CollisionResult(false, intended, -1);
     }
 
-    private Position findCollisionPoint(Position p1Start, Position p1End, Position p2Start, Position p2End, double radius) {
-        double dx = p1End.x - p2End.x;
-        double dy = p1End.y - p2End.y;
-        double distance = Math.sqrt(dx * dx + dy * dy);
-
-        if (distance == 0) {
-            return new Position(p1Start.x, p1Start.y);
+    /**
+     * @return the first t in [0, 1] where |(dx, dy) + t * (vx, vy)|^2 = minSquaredDistance, 0 if the pair already
+     * overlaps and isn't moving apart, NO_IMPACT if it never touches during the step
+     */
+    static double impactTime(double dx, double dy, double vx, double vy, double minSquaredDistance) {
+        double c = dx * dx + dy * dy - minSquaredDistance;
+        double b = dx * vx + dy * vy; // half of the linear term
+        if (c < 0) {
+            return b <= 0 ? 0 : NO_IMPACT; // overlapping pairs that separate are let go
         }
-        // Move back from intended position to collision boundary
-        double separation = ((radius * 2) - distance) / 2;
-        double normalX = dx / distance;
-        double normalY = dy / distance;
-
-        return new Position(
-                p1End.x + normalX * separation,
-                p1End.y + normalY * separation
-        );
+        if (b >= 0) return NO_IMPACT; // not closing in
+        double a = vx * vx + vy * vy;
+        double discriminant = b * b - a * c;
+        if (discriminant < 0) return NO_IMPACT; // passing by
+        double t = (-b - Math.sqrt(discriminant)) / a;
+        return t <= 1 ? t : NO_IMPACT;
     }
 
-    public Position computeNextTarget(Position oldLead, CollisionResult collision) {
-        if (collision.otherPlayerIndex == -1) {
+    /** sets the next target of entity `i`, which already stands on its collision point **/
+    public void computeNextTarget(int i) {
+        if (world.otherIndex[i] == -1) {
             // Wall collision - determine which wall and reflect
-            return handleWallReflection(oldLead, collision.collisionPoint);
+            handleWallReflection(i);
         } else {
             // Player collision - reflect using collision normal
-            return handlePlayerReflection(oldLead, collision);
+            handlePlayerReflection(i);
         }
     }
 
-    private Position handleWallReflection(Position oldLead, Position collisionPoint) {
+    private void handleWallReflection(int i) {
+        WorldState w = world;
         double radius = CONST.PLAYER_RADIUS;
-        Position reflectedLead = new Position(oldLead.x, oldLead.y);
+        double collisionX = w.x[i];
+        double collisionY = w.y[i];
+        double reflectedX = w.leadX[i];
+        double reflectedY = w.leadY[i];
 
         // Determine which wall(s) we hit based on collision point
-        boolean hitLeft = Math.abs(collisionPoint.x - radius) < 0.1;
-        boolean hitRight = Math.abs(collisionPoint.x - (CONST.GAME_WIDTH - radius)) < 0.1;
-        boolean hitTop = Math.abs(collisionPoint.y - (CONST.GAME_HEIGHT - radius)) < 0.1;
-        boolean hitBottom = Math.abs(collisionPoint.y - radius) < 0.1;
+        boolean hitLeft = Math.abs(collisionX - radius) < 0.1;
+        boolean hitRight = Math.abs(collisionX - (width - radius)) < 0.1;
+        boolean hitTop = Math.abs(collisionY - (height - radius)) < 0.1;
+        boolean hitBottom = Math.abs(collisionY - radius) < 0.1;
 
         // Reflect the lead vector based on which wall(s) were hit
         if (hitLeft || hitRight) {
-            reflectedLead.x = -reflectedLead.x; // Reflect horizontally
+            reflectedX = -reflectedX; // Reflect horizontally
         }
         if (hitTop || hitBottom) {
-            reflectedLead.y = -reflectedLead.y; // Reflect vertically
+            reflectedY = -reflectedY; // Reflect vertically
         }
 
         // Find a target point on the opposite wall
-        Position target = findTargetOnWall(collisionPoint, reflectedLead);
+        findTargetOnWall(i, reflectedX, reflectedY);
 
         // Ensure target is far enough away to prevent immediate stopping
-        return ensureMinimumDistance(collisionPoint, target);
+        ensureMinimumDistance(i);
     }
 
-    private Position handlePlayerReflection(Position oldLead, CollisionResult collision) {
+    void handlePlayerReflection(int i) {
+        WorldState w = world;
         // Get the other player's position
-        Player otherPlayer = players.get(collision.otherPlayerIndex);
+        int other = w.otherIndex[i];
+        double oldLeadX = w.leadX[i];
+        double oldLeadY = w.leadY[i];
 
         // Calculate normal vector from other player to collision point
-        double dx = collision.collisionPoint.x - otherPlayer.current.x;
-        double dy = collision.collisionPoint.y - otherPlayer.current.y;
+        double dx = w.x[i] - w.x[other];
+        double dy = w.y[i] - w.y[other];
         double distance = Math.sqrt(dx * dx + dy * dy);
 
         if (distance == 0) {
             // Fallback: use a perpendicular direction to old lead
-            dx = -oldLead.y;
-            dy = oldLead.x;
+            dx = -oldLeadY;
+            dy = oldLeadX;
             distance = Math.sqrt(dx * dx + dy * dy);
             if (distance == 0) {
                 // Ultimate fallback: random direction
-                dx = Math.random() - 0.5;
-                dy = Math.random() - 0.5;
+                dx = random.nextDouble() - 0.5;
+                dy = random.nextDouble() - 0.5;
                 distance = Math.sqrt(dx * dx + dy * dy);
             }
         }
@@ -244,121 +605,176 @@ public class GameBox {
 
         // Reflect the old lead vector using the collision normal
         // Reflection formula: reflected = incident - 2 * (incident · normal) * normal
-        double dotProduct = oldLead.x * normalX + oldLead.y * normalY;
-        Position reflectedLead = new Position(
-                oldLead.x - 2 * dotProduct * normalX,
-                oldLead.y - 2 * dotProduct * normalY
-        );
+        double dotProduct = oldLeadX * normalX + oldLeadY * normalY;
+        double reflectedX = oldLeadX - 2 * dotProduct * normalX;
+        double reflectedY = oldLeadY - 2 * dotProduct * normalY;
 
         // Find a target point on a wall using the reflected direction
-        Position target = findTargetOnWall(collision.collisionPoint, reflectedLead);
+        findTargetOnWall(i, reflectedX, reflectedY);
 
         // Ensure target is far enough away to prevent immediate stopping
-        return ensureMinimumDistance(collision.collisionPoint, target);
+        ensureMinimumDistance(i);
     }
 
-    private Position ensureMinimumDistance(Position from, Position to) {
-        double dx = to.x - from.x;
-        double dy = to.y - from.y;
+    /** pushes the target of `i` away from its current position if it is too close **/
+    private void ensureMinimumDistance(int i) {
+        WorldState w = world;
+        double dx = w.targetX[i] - w.x[i];
+        double dy = w.targetY[i] - w.y[i];
         double distance = Math.sqrt(dx * dx + dy * dy);
 
         if (distance < MIN_TARGET_DISTANCE) {
             // If target is too close, extend it to minimum distance
             if (distance == 0) {
                 // Generate random direction if no direction exists
-                return generateRandomTarget();
+                generateRandomTarget(i);
+                return;
             }
 
             double factor = MIN_TARGET_DISTANCE / distance;
-            double newX = from.x + dx * factor;
-            double newY = from.y + dy * factor;
+            double newX = w.x[i] + dx * factor;
+            double newY = w.y[i] + dy * factor;
 
             // Clamp to game bounds
             double radius = CONST.PLAYER_RADIUS;
-            newX = Math.max(radius, Math.min(CONST.GAME_WIDTH - radius, newX));
-            newY = Math.max(radius, Math.min(CONST.GAME_HEIGHT - radius, newY));
-
-            return new Position(newX, newY);
+            w.targetX[i] = Math.max(radius, Math.min(width - radius, newX));
+            w.targetY[i] = Math.max(radius, Math.min(height - radius, newY));
         }
-
-        return to;
     }
 
-    private Position findTargetOnWall(Position startPoint, Position direction) {
+    /** sets the target of `i` where the ray from its position along (directionX, directionY) meets a wall **/
+    void findTargetOnWall(int i, double directionX, double directionY) {
+        WorldState w = world;
         double radius = CONST.PLAYER_RADIUS;
+        double startX = w.x[i];
+        double startY = w.y[i];
 
         // Normalize direction
-        double distance = Math.sqrt(direction.x * direction.x + direction.y * direction.y);
+        double distance = Math.sqrt(directionX * directionX + directionY * directionY);
         if (distance == 0) {
             // Fallback to a random direction
-            return generateRandomTarget();
+            generateRandomTarget(i);
+            return;
         }
 
-        double dirX = direction.x / distance;
-        double dirY = direction.y / distance;
+        double dirX = directionX / distance;
+        double dirY = directionY / distance;
 
         // Calculate intersection with each wall
         double minT = Double.MAX_VALUE;
-        Position targetPoint = null;
+        boolean found = false;
+        double targetX = 0;
+        double targetY = 0;
 
         // Right wall (x = GAME_WIDTH - radius)
         if (dirX > 0) {
-            double t = (CONST.GAME_WIDTH - radius - startPoint.x) / dirX;
+            double t = (width - radius - startX) / dirX;
             if (t > 0) {
-                double y = startPoint.y + t * dirY;
-                if (y >= radius && y <= CONST.GAME_HEIGHT - radius && t < minT) {
+                double y = startY + t * dirY;
+                if (y >= radius && y <= height - radius && t < minT) {
                     minT = t;
-                    targetPoint = new Position(CONST.GAME_WIDTH - radius, y);
+                    found = true;
+                    targetX = width - radius;
+                    targetY = y;
                 }
             }
         }
 
         // Left wall (x = radius)
         if (dirX < 0) {
-            double t = (radius - startPoint.x) / dirX;
+            double t = (radius - startX) / dirX;
             if (t > 0) {
-                double y = startPoint.y + t * dirY;
-                if (y >= radius && y <= CONST.GAME_HEIGHT - radius && t < minT) {
+                double y = startY + t * dirY;
+                if (y >= radius && y <= height - radius && t < minT) {
                     minT = t;
-                    targetPoint = new Position(radius, y);
+                    found = true;
+                    targetX = radius;
+                    targetY = y;
                 }
             }
         }
 
         // Top wall (y = GAME_HEIGHT - radius)
         if (dirY > 0) {
-            double t = (CONST.GAME_HEIGHT - radius - startPoint.y) / dirY;
+            double t = (height - radius - startY) / dirY;
             if (t > 0) {
-                double x = startPoint.x + t * dirX;
-                if (x >= radius && x <= CONST.GAME_WIDTH - radius && t < minT) {
+                double x = startX + t * dirX;
+                if (x >= radius && x <= width - radius && t < minT) {
                     minT = t;
-                    targetPoint = new Position(x, CONST.GAME_HEIGHT - radius);
+                    found = true;
+                    targetX = x;
+                    targetY = height - radius;
                 }
             }
         }
 
         // Bottom wall (y = radius)
         if (dirY < 0) {
-            double t = (radius - startPoint.y) / dirY;
+            double t = (radius - startY) / dirY;
             if (t > 0) {
-                double x = startPoint.x + t * dirX;
-                if (x >= radius && x <= CONST.GAME_WIDTH - radius && t < minT) {
+                double x = startX + t * dirX;
+                if (x >= radius && x <= width - radius && t < minT) {
                     minT = t;
-                    targetPoint = new Position(x, radius);
+                    found = true;
+                    targetX = x;
+                    targetY = radius;
                 }
             }
         }
 
         // If no valid intersection found, generate random target
-        if (targetPoint == null) {
-            targetPoint = generateRandomTarget();
+        if (!found) {
+            generateRandomTarget(i);
+            return;
         }
 
-        return targetPoint;
+        w.targetX[i] = targetX;
+        w.targetY[i] = targetY;
     }
 
-    /**
-     * @param otherPlayerIndex -1 if wall collision, index in `players` if not
-     */
-    private record CollisionResult(boolean hasCollision, Position collisionPoint, int otherPlayerIndex) { }
-}
\ No newline at end of file
+    public static List<Position> getCirclePoints(int n, double r, double cx, double cy) {
+        List<Position> points = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            double angle = 2 * Math.PI * i / n;
+            double x = cx + r * Math.cos(angle);
+            double y = cy + r * Math.sin(angle);
+            points.add(new Position(x, y));
+        }
+        return points;
+    }
+
+    public static List<Position> computeEdgeTargetsFromCenter(double cx, double cy, double boxSize, int numPlayers) {
+        List<Position> targets = new ArrayList<>();
+
+        for (int i = 0; i < numPlayers; i++) {
+            double angle = 2 * Math.PI * i / numPlayers;
+
+            double dirX = Math.cos(angle);
+            double dirY = Math.sin(angle);
+
+            double tMaxX = Double.POSITIVE_INFINITY;
+            double tMaxY = Double.POSITIVE_INFINITY;
+
+            if (dirX != 0) {
+                tMaxX = (dirX > 0) ? (boxSize - cx) / dirX : (0 - cx) / dirX;
+            }
+
+            if (dirY != 0) {
+                tMaxY = (dirY > 0) ? (boxSize - cy) / dirY : (0 - cy) / dirY;
+            }
+
+            double t = Math.min(tMaxX, tMaxY);
+
+            double x = cx + dirX * t;
+            double y = cy + dirY * t;
+
+            // Clamp to box bounds in case of precision error
+            x = Math.max(0, Math.min(boxSize, x));
+            y = Math.max(0, Math.min(boxSize, y));
+
+            targets.add(new Position(x, y));
+        }
+
+        return targets;
+    }
+}
@@ -2,15 +2,22 @@ package com.bilante.fightgame;
 
 import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyLongProperty;
+import javafx.beans.property.ReadOnlyLongWrapper;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
+import javafx.scene.effect.Glow;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
-import sun.misc.Signal;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
 public class GameBoxController {
@@ -22,13 +29,58 @@ public class GameBoxController {
     private Circle startLine;
 
     private AnimationTimer gameLoop;
-    private AnimationTimer gameEndLoop;
+    private SimulationLoop simulation;
     private GameData gameData;
-    private List<PlayerUI> playerUIs;
-    private static int nbPlayers = 0;
+    private ArenaRenderer renderer;
+    private ReplayRecorder recorder;
+    private WorldImage sharedWorld;
+    private WinEstimator estimator;
+    private PerfHud hud;
+
+    // replay playback
+    private ReplayReader replay;
+    private GameBox replayBox;
+    private AnimationTimer replayLoop;
+    private boolean replayPlaying;
+    private double replayBacklog; // seconds of replay due but not shown yet
+    private final ReadOnlyLongWrapper replayTick = new ReadOnlyLongWrapper(0);
+    private final WorldSnapshot replaySnapshot = new WorldSnapshot();
+
+    // spectating a match streamed by a SpectatorServer
+    private SpectatorClient spectator;
+    private AnimationTimer spectatorLoop;
+
+    /** builds what gameBox-view.fxml describes, without the loader **/
+    Pane buildView() {
+        gameBox = new Pane();
+        gameBox.setPrefSize(CONST.GAME_WIDTH, CONST.GAME_HEIGHT);
+        gameBox.setStyle("-fx-background-color: rgb(246,242,242); -fx-border-color: black; -fx-border-width: 2;");
+        Circle center = new Circle(CONST.centerXY[0], CONST.centerXY[1], 5, Color.YELLOW);
+        center.setEffect(new Glow(1.0));
+        startLine = new Circle(CONST.centerXY[0], CONST.centerXY[1], CONST.startLineRadius, Color.TRANSPARENT);
+        startLine.setStroke(Color.BLACK);
+        startLine.setStrokeWidth(1);
+        gameBox.getChildren().addAll(center, startLine);
+        return gameBox;
+    }
 
     public void setModel(GameData gameData) {
         this.gameData = gameData;
+        hud = new PerfHud(gameData.gameBox);
+        gameBox.getChildren().add(hud.canvas);
+        hud.setShown(Boolean.getBoolean(PerfHud.PROPERTY));
+        gameBox.sceneProperty().addListener((observable, oldScene, scene) -> {
+            if (scene != null) scene.addEventFilter(KeyEvent.KEY_PRESSED, event -> {
+                if (event.getCode() == KeyCode.F3) hud.toggle();
+            });
+        });
+        gameData.gameBox.addListener(new GameListener() {
+            @Override
+            public void onGameOver(int winnerId) {
+                // on the simulation thread, mid step: end the game on the FX thread
+                Platform.runLater(() -> gameData.dataReady.set(false)); // acts like a switch for the gameController to identify an endGame
+            }
+        });
         gameData.dataReady.addListener((observable, oldValue, newValue) -> {
             if (oldValue == false && newValue == true) {
                 quickStart(gameData.sidePanel.displays);
@@ -39,34 +91,17 @@ public class GameBoxController {
         });
     }
 
-    public void gameOverLoop(){
-        gameEndLoop = new AnimationTimer() {
-            @Override
-            public void handle(long l) {
-                List<Double> HPs = new ArrayList<>();
-                for (Player player : gameData.gameBox.players) {
-                    if (player.healthPoints > 0) HPs.add(player.healthPoints);
-                }
-                if (HPs.size() < 2 ) {
-                    gameData.dataReady.set(false); // acts like a switch for the gameController to identify an endGame
-                }
-            }
-        };
-        gameEndLoop.start();
-    }
-
     private void endGame() {
         gameLoop.stop();
-        if (gameEndLoop != null) gameEndLoop.stop();
+        simulation.stop(); // the arena is ours again
+        stopEstimating();
+        stopRecording();
+        stopSharing();
 
-        for (PlayerUI ui : playerUIs) {
-            gameBox.getChildren().remove(ui.getNode());
-        }
+        renderer.stop();
 
-        String winner = winner().name;
-        gameData.gameBox.players.clear();
-        playerUIs.clear();
-        nbPlayers = 0;
+        String winner = winner();
+        gameData.gameBox.clear();
 
         Platform.runLater(() -> {
             Alert alert = new Alert(Alert.AlertType.INFORMATION);
@@ -79,145 +114,248 @@ public class GameBoxController {
 
 
 
-    private Player winner() {
-        for (Player player :gameData.gameBox.players) {
-            if(player.healthPoints > 0) return player;
-        }
-        return null;
+    private String winner() {
+        int survivor = gameData.gameBox.survivor();
+        return survivor == -1 ? "Nobody" : gameData.gameBox.players.get(survivor).name;
     }
 
     public void quickStart(List<SidePanel.PlayerInfoDisplay> playersData) {
-        playerUIs = new ArrayList<>();
-
+        stopReplay();
+        stopSpectating();
         for (SidePanel.PlayerInfoDisplay playerData : playersData) {
-            Player p = new Player(
-                    playerData.name,
-                    playerData.health,
-                    playerData.damage,
-                    playerData.speed,
-                    new Position(CONST.centerXY[0], CONST.centerXY[1]),
-                    new Position(CONST.centerXY[0], CONST.centerXY[1])
-            );
-            PlayerUI playerUI = new PlayerUI(p);
-
-            gameData.gameBox.players.add(p);
-            playerUIs.add(playerUI);
-            gameBox.getChildren().add(playerUI.getNode());
+            gameData.gameBox.addPlayer(playerData.name, playerData.health, playerData.damage, playerData.speed);
         }
         positionPlayersUIOnStart();
+        simulation = SimulationLoop.fromSettings(gameData.gameBox);
+        startRecording(simulation.step);
+        startSharing();
         startGameLoop();
-        gameOverLoop();
     }
 
-    public void startGameLoop() {
-        gameLoop = new AnimationTimer() {
-            @Override
-            public void handle(long now) {
-                updateGame();
-            }
-        };
-        gameLoop.start();
+    /** with -Dfightgame.record=dir (or --record=dir) every match is recorded to a new file of that directory **/
+    private void startRecording(double step) {
+        String directory = System.getProperty(ReplayRecorder.PROPERTY);
+        if (directory == null) return;
+        try {
+            Path file = Files.createDirectories(Path.of(directory)).resolve("fightgame-" + System.currentTimeMillis() + ".fgr");
+            recorder = new ReplayRecorder(file, gameData.gameBox, step);
+            gameData.gameBox.addListener(recorder);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
-    public void positionPlayersUIOnStart () {
-        List<Position> positionsAtStart = new ArrayList<>(getCirclePoints(nbPlayers, CONST.startLineRadius, CONST.centerXY[0], CONST.centerXY[1]));
-        List<Position> targetsAtStart = new ArrayList<>(computeEdgeTargetsFromCenter(250, 250, 500, nbPlayers));
-        for ( int i = 0; i < nbPlayers; i++ ) {
-            gameData.gameBox.players.get(i).setCurrent(positionsAtStart.get(i));
-            gameData.gameBox.players.get(i).setTarget(targetsAtStart.get(i));
-            playerUIs.get(i).updatePositionFromModel();
+    private void stopRecording() {
+        if (recorder == null) return;
+        gameData.gameBox.removeListener(recorder);
+        try {
+            recorder.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+        recorder = null;
     }
 
-    public List<Position> getCirclePoints(int n, double r, double cx, double cy) {
-        List<Position> points = new ArrayList<>();
-        for (int i = 0; i < n; i++) {
-            double angle = 2 * Math.PI * i / n;
-            double x = cx + r * Math.cos(angle);
-            double y = cy + r * Math.sin(angle);
-            points.add(new Position(x, y));
+    /** with -Dfightgame.shareWorld=file (or --share-world=file) every tick is published to that file, mapped in memory **/
+    private void startSharing() {
+        String file = System.getProperty(WorldImage.PROPERTY);
+        if (file == null) return;
+        GameBox arena = gameData.gameBox;
+        try {
+            sharedWorld = new WorldImage(Path.of(file), arena.world.size, arena.width, arena.height);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        return points;
+        sharedWorld.publish(arena.world, arena.ticks); // the placed players
+        arena.addListener(sharedWorld);
     }
 
-    public static List<Position> computeEdgeTargetsFromCenter(double cx, double cy, double boxSize, int numPlayers) {
-        List<Position> targets = new ArrayList<>();
-
-        for (int i = 0; i < numPlayers; i++) {
-            double angle = 2 * Math.PI * i / numPlayers;
+    private void stopSharing() {
+        if (sharedWorld == null) return;
+        gameData.gameBox.removeListener(sharedWorld);
+        try {
+            sharedWorld.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        sharedWorld = null;
+    }
 
-            double dirX = Math.cos(angle);
-            double dirY = Math.sin(angle);
+    /** the chances to win of the players in the leaderboard, unless -Dfightgame.winEstimate=false (or --win-estimate=false) **/
+    private void startEstimating(double step) {
+        estimator = WinEstimator.fromSettings(step, shares -> {
+            Leaderboard leaderboard = gameData.sidePanel.leaderboard;
+            if (leaderboard != null) leaderboard.reportWinShares(shares);
+        });
+        if (estimator != null) gameData.gameBox.addListener(estimator);
+    }
 
-            double tMaxX = Double.POSITIVE_INFINITY;
-            double tMaxY = Double.POSITIVE_INFINITY;
+    private void stopEstimating() {
+        if (estimator == null) return;
+        gameData.gameBox.removeListener(estimator);
+        estimator.stop();
+        estimator = null;
+    }
 
-            if (dirX != 0) {
-                tMaxX = (dirX > 0) ? (boxSize - cx) / dirX : (0 - cx) / dirX;
-            }
+    /** shows a recorded match instead of running one, starts paused on its first tick **/
+    public void playReplay(Path file) throws IOException {
+        if (gameData.dataReady.get()) return; // a match is running
+        stopReplay();
+        stopSpectating();
+        replay = new ReplayReader(file);
+        replayBox = replay.createGameBox();
+        renderer = ArenaRenderer.fromSettings();
+        renderer.start(gameBox, replay.width, replay.height, replay.entities);
+        replayTick.set(replay.tick());
+        replayPlaying = false;
+        replayLoop = new AnimationTimer() {
+            private long last = -1;
 
-            if (dirY != 0) {
-                tMaxY = (dirY > 0) ? (boxSize - cy) / dirY : (0 - cy) / dirY;
+            @Override
+            public void handle(long now) {
+                if (last != -1 && replayPlaying) {
+                    replayBacklog += (now - last) / 1e9;
+                    while (replayBacklog >= replay.step) {
+                        replayBacklog -= replay.step;
+                        if (!replay.next(replayBox)) {
+                            replayPlaying = false;
+                            break;
+                        }
+                    }
+                    replayTick.set(replay.tick());
+                }
+                last = now;
+                renderReplay();
             }
+        };
+        replayLoop.start();
+    }
 
-            double t = Math.min(tMaxX, tMaxY);
-
-            double x = cx + dirX * t;
-            double y = cy + dirY * t;
+    public void setReplayPlaying(boolean playing) {
+        replayPlaying = playing && replay != null;
+        replayBacklog = 0;
+    }
 
-            // Clamp to box bounds in case of precision error
-            x = Math.max(0, Math.min(boxSize, x));
-            y = Math.max(0, Math.min(boxSize, y));
+    public boolean isReplayPlaying() {
+        return replayPlaying;
+    }
 
-            targets.add(new Position(x, y));
-        }
+    /** jumps to `tick` of the replay, scrubbing works while it plays **/
+    public void seekReplay(long tick) {
+        if (replay == null) return;
+        replay.seek(tick, replayBox);
+        replayTick.set(replay.tick());
+        renderReplay();
+    }
 
-        return targets;
+    private void renderReplay() {
+        replaySnapshot.captureStill(replayBox.world, replay.tick());
+        render(replaySnapshot, 1);
     }
 
+    public ReadOnlyLongProperty replayTickProperty() {
+        return replayTick.getReadOnlyProperty();
+    }
 
+    /** @return the last tick of the replay shown, 0 if none **/
+    public long replayLastTick() {
+        return replay == null ? 0 : replay.lastTick;
+    }
 
+    public void stopReplay() {
+        if (replay == null) return;
+        replayLoop.stop();
+        renderer.stop();
+        replay = null;
+        replayBox = null;
+        replayPlaying = false;
+    }
 
-    public void updateGame() {
-        gameData.gameBox.updatePlayers();
-
-        // Update UI
-        for (int i = 0; i < gameData.gameBox.players.size(); i++) {
-            playerUIs.get(i).updatePositionFromModel();
-            Player p = gameData.gameBox.players.get(i);
-            if (p.healthPoints <= 0) {
-                gameData.sidePanel.playerDisplaySets.get(i).healthBarForeground.setFill(Color.rgb(0,0,0));
+    /**
+     * watches the match of a {@link SpectatorServer} at `address` (host:port) instead of running one
+     * @return the leaderboard of the match, fed by the stream, null if a match is running here
+     */
+    public Leaderboard spectate(String address) throws IOException {
+        if (gameData.dataReady.get()) return null; // a match is running
+        stopReplay();
+        stopSpectating();
+        spectator = SpectatorClient.connect(address);
+        renderer = ArenaRenderer.fromSettings();
+        renderer.start(gameBox, spectator.width, spectator.height, spectator.entities);
+        Leaderboard leaderboard = new Leaderboard(spectator.names, spectator.maxHealth);
+        spectator.setListener(new GameListener() {
+            @Override
+            public void onHealthChanged(int id, double oldHealth, double newHealth) {
+                leaderboard.report(id, newHealth);
             }
-        }
+        });
+        spectator.start();
+        spectatorLoop = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                WorldSnapshot snapshot = spectator.latest();
+                render(snapshot, spectator.alpha(snapshot, System.nanoTime()));
+                if (!spectator.isEnded()) return;
+                stop(); // the last tick stays on screen
+                int winner = spectator.winner();
+                Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                alert.setHeaderText(null);
+                if (spectator.isFinished()) {
+                    alert.setTitle("GAME ENDED");
+                    alert.setContentText((winner == -1 ? "Nobody" : spectator.names[winner]) + " wins!");
+                } else {
+                    alert.setTitle("SPECTATING");
+                    alert.setContentText("Connection to the server lost"); // ended without the end of the match
+                }
+                alert.show();
+            }
+        };
+        spectatorLoop.start();
+        return leaderboard;
+    }
 
+    public void stopSpectating() {
+        if (spectator == null) return;
+        spectatorLoop.stop();
+        renderer.stop();
+        try {
+            spectator.close();
+        } catch (IOException ignored) {
+            // the connection is gone either way
+        }
+        spectator = null;
     }
 
-    private static class PlayerUI {
-        private static final Color[] colors = {
-                Color.rgb(35, 199, 0),
-                Color.rgb(0, 199, 146),
-                Color.rgb(206, 16, 16),
-                Color.rgb(118, 10, 122),
-                Color.rgb(150, 50, 10)
+    /** starts the simulation thread {@link #quickStart} built, the pulse only draws what it publishes **/
+    public void startGameLoop() {
+        startEstimating(simulation.step); // listeners are added before the simulation thread runs them
+        simulation.start();
+        gameLoop = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                updateGame();
+            }
         };
+        gameLoop.start();
+    }
 
-        private final Player player;
-        private final Circle playerBall;
-
-        public PlayerUI(Player p) {
-            this.player = p;
-            this.playerBall = new Circle(CONST.PLAYER_RADIUS, colors[nbPlayers % colors.length]);
-            updatePositionFromModel();
-            nbPlayers++;
-        }
+    public void positionPlayersUIOnStart () {
+        GameBox arena = gameData.gameBox;
+        arena.placePlayersOnStart();
+        renderer = ArenaRenderer.fromSettings();
+        renderer.start(gameBox, arena.width, arena.height, arena.players.size());
+    }
 
-        public Circle getNode() {
-            return playerBall;
-        }
+    public void updateGame() {
+        // Update UI from the latest tick, the side panel follows the health events on its own
+        WorldSnapshot snapshot = simulation.latest();
+        render(snapshot, simulation.alpha(snapshot, System.nanoTime()));
+    }
 
-        public void updatePositionFromModel() {
-            playerBall.setCenterX(player.current.x);
-            playerBall.setCenterY(player.current.y);
-        }
+    /** draws a frame of the arena, timed for the HUD **/
+    private void render(WorldSnapshot snapshot, double alpha) {
+        long started = System.nanoTime();
+        renderer.render(snapshot, alpha);
+        hud.frameRendered(System.nanoTime() - started);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,14 @@
+package com.bilante.fightgame;
+
+/** engine events of a {@link GameBox}, called on the thread that steps the engine **/
+public interface GameListener {
+
+    /** HP of entity `id` went from `oldHealth` to `newHealth`, only fired on an actual change **/
+    default void onHealthChanged(int id, double oldHealth, double newHealth) { }
+
+    /** a step just ended, the world and its per tick scratch (collisions) describe it **/
+    default void onTick(GameBox gameBox) { }
+
+    /** fewer than two players are left, fired once per match. `winnerId` is -1 if the last ones died together **/
+    default void onGameOver(int winnerId) { }
+}
@@ -0,0 +1,101 @@
+package com.bilante.fightgame;
+
+import java.util.Arrays;
+
+/**
+ * The order behind the {@link Leaderboard}, without JavaFX: players by HP, the healthiest first (lowest id first on
+ * ties). Every HP change moves only the player that changed, by as many places as it drops; nothing is re-sorted
+ * after the start.
+ *
+ * Changes are reported from any thread and collected under the lock; {@link #drain()} applies them one player at a
+ * time, so every move starts from a ranking that is in order but for that player.
+ */
+class HealthRanking {
+    final double[] health;
+    final int[] order; // id at every rank
+    final int[] rank; // rank of every id
+
+    // changes reported and not applied yet, guarded by `this`
+    private final double[] pendingHealth;
+    private final boolean[] pending;
+    private final int[] pendingIds;
+    private int pendingCount = 0;
+    // copies of a batch for the draining thread
+    private final int[] drainingIds;
+    private final double[] drainingHealth;
+
+    /** @param startHealth HP of every player before the first change **/
+    HealthRanking(double[] startHealth) {
+        int n = startHealth.length;
+        health = startHealth.clone();
+        order = new int[n];
+        rank = new int[n];
+        pendingHealth = new double[n];
+        pending = new boolean[n];
+        pendingIds = new int[n];
+        drainingIds = new int[n];
+        drainingHealth = new double[n];
+        Integer[] sorted = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = i;
+        }
+        Arrays.sort(sorted, (a, b) -> before(a, b) ? -1 : before(b, a) ? 1 : 0); // the only sort, at the start
+        for (int r = 0; r < n; r++) {
+            place(sorted[r], r);
+        }
+    }
+
+    /** records the new HP of `id` until the next drain. @return true if it starts a batch, which needs a drain **/
+    synchronized boolean report(int id, double newHealth) {
+        pendingHealth[id] = newHealth;
+        if (!pending[id]) {
+            pending[id] = true;
+            pendingIds[pendingCount++] = id;
+        }
+        return pendingCount == 1;
+    }
+
+    /** applies the changes reported since the last drain. @return how many players changed **/
+    int drain() {
+        int count;
+        synchronized (this) {
+            count = pendingCount;
+            for (int c = 0; c < count; c++) {
+                int id = pendingIds[c];
+                drainingIds[c] = id;
+                drainingHealth[c] = pendingHealth[id];
+                pending[id] = false;
+            }
+            pendingCount = 0;
+        }
+        for (int c = 0; c < count; c++) {
+            int id = drainingIds[c];
+            health[id] = drainingHealth[c]; // one player out of place at a time, what move() expects
+            move(id);
+        }
+        return count;
+    }
+
+    /** moves `id` to its place after its HP changed, the others keep their order **/
+    void move(int id) {
+        int r = rank[id];
+        while (r > 0 && before(id, order[r - 1])) {
+            place(order[r - 1], r);
+            r--;
+        }
+        while (r < order.length - 1 && before(order[r + 1], id)) {
+            place(order[r + 1], r);
+            r++;
+        }
+        place(id, r);
+    }
+
+    private boolean before(int a, int b) {
+        return health[a] > health[b] || health[a] == health[b] && a < b;
+    }
+
+    private void place(int id, int r) {
+        order[r] = id;
+        rank[id] = r;
+    }
+}
@@ -0,0 +1,454 @@
+package com.bilante.fightgame;
+
+import java.util.Arrays;
+
+/**
+ * Event driven alternative to {@link GameBox#step(double)}. Between two collisions every player runs in a straight
+ * line at a constant speed, so the next wall hit, pair contact and target reached of each entity are solved for
+ * exactly and kept in a priority queue; time jumps from one event to the next instead of being integrated tick by
+ * tick. Responses reuse the tick engine: same reflections, same target picking, same damage rule. Its timing too: a
+ * player that ran into something stands there until the tick is over, the hit stamp of an event is the tick it falls
+ * in, so players bouncing in the same tick tie, contacts of one instant are resolved together like the contacts of
+ * one tick, and a player retargets at the first tick ending less than MIN_TARGET_DISTANCE short of its target. A pair
+ * that touched counts as touching until it moved apart, so piled up players can't contact each other over and over at
+ * the same instant.
+ *
+ * There is no broad phase: every event tests the players it touched against all the others, n tests an event and
+ * more events the more players, so the cost grows with the square of the roster at least. {@link Match#kinetic()}
+ * takes up to MAX_PLAYERS, past that the tick engine and its grid are faster.
+ */
+public class KineticEngine {
+    static final byte NONE = 0;
+    static final byte WALL = 1;
+    static final byte TARGET = 2;
+    static final byte CONTACT = 3;
+    static final double SEPARATION = 1e-6; // squared px past touching that part a contact pair, unless it moves apart
+    // largest roster a match plays on this engine: 16 random players run 3 times faster than tick by tick, 32 already
+    // 1.6 times slower, 100 about 10 times slower
+    static final int MAX_PLAYERS = 16;
+
+    final GameBox gameBox;
+    final WorldState world;
+    /** step of the tick engine whose outcomes are reproduced **/
+    final double tickStep;
+    /** simulated seconds since the engine started **/
+    double time = 0;
+    /** events handled so far **/
+    long events = 0;
+
+    // entity motion: at time baseTime[i] entity i stands on (world.x[i], world.y[i]) and moves at (vx[i], vy[i]) from
+    // then on; a baseTime still to come is the end of the tick it waits for after a collision
+    private final double[] baseTime;
+    private final double[] vx;
+    private final double[] vy;
+    // where the current run of each entity set off, on a tick boundary like in the tick engine
+    private final double[] originX;
+    private final double[] originY;
+    // when each entity last stopped on something, and its hit stamp from before, which the contacts of that same
+    // instant are judged on like the contacts of one tick in GameBox.resolveContacts
+    private final double[] stopTime;
+    private final long[] previousHit;
+
+    // next event of each entity
+    private final double[] eventTime;
+    private final byte[] eventType;
+    private final int[] eventOther;
+
+    // binary min-heap of the entities ordered by eventTime
+    private final int[] heap;
+    private final int[] heapIndex;
+
+    // pairs that touched and have not moved apart since, and how many each entity is in
+    private final PairSet touching = new PairSet();
+    private final int[] touchingCount;
+
+    /**
+     * takes over `gameBox` as it is now, its players placed. The tick engine must not step it anymore
+     * @param tickStep step of the tick engine to reproduce: its ticks time the stamps and the retargets
+     */
+    public KineticEngine(GameBox gameBox, double tickStep) {
+        this.gameBox = gameBox;
+        this.world = gameBox.world;
+        this.tickStep = tickStep;
+        int n = world.size;
+        baseTime = new double[n];
+        vx = new double[n];
+        vy = new double[n];
+        originX = new double[n];
+        originY = new double[n];
+        stopTime = new double[n];
+        previousHit = new long[n];
+        Arrays.fill(stopTime, Double.NEGATIVE_INFINITY);
+        eventTime = new double[n];
+        eventType = new byte[n];
+        eventOther = new int[n];
+        heap = new int[n];
+        heapIndex = new int[n];
+        touchingCount = new int[n];
+        for (int i = 0; i < n; i++) {
+            aim(i, 0);
+            heap[i] = i;
+            heapIndex[i] = i;
+        }
+        for (int i = 0; i < n; i++) {
+            predict(i);
+        }
+        for (int h = n / 2 - 1; h >= 0; h--) {
+            siftDown(h);
+        }
+    }
+
+    /** @return the time of the next event, infinite if nothing will ever happen **/
+    public double nextEventTime() {
+        return heap.length == 0 ? Double.POSITIVE_INFINITY : eventTime[heap[0]];
+    }
+
+    /**
+     * handles the events up to `until` (simulated seconds), or until the game is over, then moves every entity
+     * to the time reached
+     */
+    public void advance(double until) {
+        while (!gameBox.isOver() && nextEventTime() <= until) {
+            handle(heap[0]);
+        }
+        if (!gameBox.isOver()) {
+            time = Math.max(time, until);
+        }
+        for (int i = 0; i < world.size; i++) {
+            moveTo(i, time);
+        }
+        if (gameBox.mirrorPlayers) {
+            gameBox.mirrorToPlayers();
+        }
+    }
+
+    private void handle(int i) {
+        WorldState w = world;
+        time = eventTime[i];
+        events++;
+        gameBox.ticks++;
+        long now = (long) Math.floor(time / tickStep) + 1; // the tick the tick engine handles this in
+        double tickEnd = now * tickStep;
+        moveTo(i, time);
+
+        switch (eventType[i]) {
+            case WALL -> {
+                double radius = CONST.PLAYER_RADIUS;
+                w.x[i] = Math.max(radius, Math.min(gameBox.width - radius, w.x[i]));
+                w.y[i] = Math.max(radius, Math.min(gameBox.height - radius, w.y[i]));
+                stop(i); // the target may be right there on the wall, the run keeps the direction
+                w.otherIndex[i] = -1; // a wall wins over a player touched at the same instant
+                gameBox.computeNextTarget(i);
+                if (EngineEvents.WALL_BOUNCE.isEnabled()) EngineEvents.wallBounce(now, i, w.x[i], w.y[i]);
+                w.lastHit[i] = now;
+                changed(i, tickEnd);
+            }
+            case TARGET -> {
+                if ((w.targetX[i] - w.x[i]) * vx[i] + (w.targetY[i] - w.y[i]) * vy[i] < 0) {
+                    w.x[i] = w.targetX[i]; // the step of the tick engine stopped on the target and waited there
+                    w.y[i] = w.targetY[i];
+                }
+                gameBox.generateRandomTarget(i);
+                changed(i, time);
+            }
+            case CONTACT -> {
+                int other = eventOther[i];
+                moveTo(other, time);
+                int a = Math.min(i, other);
+                int b = Math.max(i, other);
+                if (touching.add(PairSet.pair(a, b))) {
+                    touchingCount[a]++;
+                    touchingCount[b]++;
+                }
+                if (stoodBefore(a) || stoodBefore(b)) {
+                    // ran into a player standing for the rest of the tick: the tick engine counts no damage for a
+                    // pair touching after one of them stopped, the runner just bounces off
+                    int runner = stoodBefore(a) ? b : a;
+                    hit(runner, runner == a ? b : a, 0, now);
+                    changed(runner, tickEnd);
+                    return;
+                }
+                // both sides judged on the stamps from before this instant, like GameBox.resolveContacts
+                long stampA = stoppedNow(a) ? previousHit[a] : w.lastHit[a];
+                long stampB = stoppedNow(b) ? previousHit[b] : w.lastHit[b];
+                double damageToA = stampA <= stampB && !w.dead[b] ? w.damage[b] : 0;
+                double damageToB = stampB <= stampA && !w.dead[a] ? w.damage[a] : 0;
+                hit(a, b, damageToA, now);
+                hit(b, a, damageToB, now);
+                gameBox.endIfOver();
+                changed(a, tickEnd);
+                changed(b, tickEnd);
+            }
+            default -> throw new IllegalStateException("No event for entity " + i);
+        }
+    }
+
+    /** @return the end of the tick `t` falls in, the next one if `t` is the start of one **/
+    private double tickEnd(double t) {
+        return (Math.floor(t / tickStep) + 1) * tickStep;
+    }
+
+    /** @return true if `i` stopped at this very instant **/
+    private boolean stoppedNow(int i) {
+        return Math.abs(stopTime[i] - time) <= 1e-9;
+    }
+
+    /** @return true if `i` stands where it stopped earlier in the tick **/
+    private boolean stoodBefore(int i) {
+        return baseTime[i] > time && !stoppedNow(i);
+    }
+
+    /** stops `i` on what it ran into, keeping the run it reflects, unless it stopped at this instant already **/
+    private void stop(int i) {
+        if (stoppedNow(i)) return;
+        stopTime[i] = time;
+        previousHit[i] = world.lastHit[i];
+        world.leadX[i] = vx[i];
+        world.leadY[i] = vy[i];
+    }
+
+    /**
+     * reflects `i` off `other` and takes `damage` like a tick of the tick engine would: off the wall or the lowest id
+     * of what it touches at the same instant
+     */
+    private void hit(int i, int other, double damage, long now) {
+        WorldState w = world;
+        boolean first = !stoppedNow(i);
+        stop(i);
+        if (first || w.otherIndex[i] > other) {
+            w.otherIndex[i] = other;
+            gameBox.computeNextTarget(i);
+        }
+        if (damage != 0) {
+            gameBox.setHealth(i, w.health[i] - damage);
+        }
+        if (EngineEvents.HIT.isEnabled()) EngineEvents.hit(now, i, other, damage, w.health[i]);
+        w.lastHit[i] = now;
+    }
+
+    /** puts entity `i` where its straight run has brought it at time `t` **/
+    private void moveTo(int i, double t) {
+        double elapsed = t - baseTime[i];
+        if (elapsed > 0) {
+            world.x[i] += vx[i] * elapsed;
+            world.y[i] += vy[i] * elapsed;
+            baseTime[i] = t;
+        }
+    }
+
+    /** sets the velocity of `i` toward its target, from its current position, to set off at `start` **/
+    private void aim(int i, double start) {
+        WorldState w = world;
+        double leadX = w.targetX[i] - w.x[i];
+        double leadY = w.targetY[i] - w.y[i];
+        double distance = Math.sqrt(leadX * leadX + leadY * leadY);
+        if (distance == 0) {
+            vx[i] = 0;
+            vy[i] = 0;
+        } else {
+            vx[i] = leadX / distance * w.speed[i];
+            vy[i] = leadY / distance * w.speed[i];
+        }
+        baseTime[i] = start;
+        originX[i] = w.x[i];
+        originY[i] = w.y[i];
+    }
+
+    /**
+     * entity `i` got a new target, to run to from `start`: re-aims it, predicts its next event and fixes the events of
+     * the others, which either waited on `i` or may now meet it first
+     */
+    private void changed(int i, double start) {
+        aim(i, start);
+        predict(i);
+        update(i);
+        for (int j = 0; j < world.size; j++) {
+            if (j == i) continue;
+            if (eventType[j] == CONTACT && eventOther[j] == i) {
+                predict(j);
+                update(j);
+            } else {
+                double t = contactTime(i, j);
+                if (t < eventTime[j]) {
+                    eventTime[j] = t;
+                    eventType[j] = CONTACT;
+                    eventOther[j] = i;
+                    update(j);
+                }
+            }
+        }
+    }
+
+    /** computes the first event of entity `i`: the earliest of its wall hit, target reached and contacts **/
+    private void predict(int i) {
+        WorldState w = world;
+        double radius = CONST.PLAYER_RADIUS;
+        double best = Double.POSITIVE_INFINITY;
+        byte type = NONE;
+        int other = -1;
+
+        double speed = Math.sqrt(vx[i] * vx[i] + vy[i] * vy[i]);
+        if (speed > 0) {
+            moveTo(i, time);
+            double start = Math.max(time, baseTime[i]);
+            double wall = Math.min(
+                    axisTime(w.x[i], vx[i], radius, gameBox.width - radius),
+                    axisTime(w.y[i], vy[i], radius, gameBox.height - radius));
+            double dx = w.targetX[i] - w.x[i];
+            double dy = w.targetY[i] - w.y[i];
+            double target = Math.sqrt(dx * dx + dy * dy) / speed;
+            // the tick engine retargets at the first step starting less than MIN_TARGET_DISTANCE short of the target,
+            // or once a step stopped on it; a step ending right on MIN_TARGET_DISTANCE does not count
+            double retarget = Math.max(start, tickEnd(start + target - GameBox.MIN_TARGET_DISTANCE / speed + 1e-9));
+            // a target on the wall is reached as the wall is hit: the wall wins unless a step ends in its last pixels,
+            // and a step ending right on it is left to the rounding of the tick engine
+            boolean wallFirst;
+            if (Math.abs(wall - target) > 1e-9) {
+                wallFirst = wall < target;
+            } else if (Math.abs(retarget - (start + target)) > 1e-9) {
+                wallFirst = retarget > start + target;
+            } else {
+                wallFirst = stepsOntoWall(i);
+            }
+            if (wallFirst) {
+                best = start + wall;
+                type = WALL;
+            } else {
+                best = retarget;
+                type = TARGET;
+            }
+        }
+        for (int j = 0; j < w.size; j++) {
+            if (j == i) continue;
+            double t = contactTime(i, j);
+            if (t < best || (t == best && type == CONTACT && j < other)) {
+                best = t;
+                type = CONTACT;
+                other = j;
+            }
+        }
+        eventTime[i] = best;
+        eventType[i] = type;
+        eventOther[i] = other;
+    }
+
+    /**
+     * @return true if the steps of the tick engine along the run of `i` touch the wall its target lies on, false if
+     * they stop a rounding short of it and retarget
+     */
+    private boolean stepsOntoWall(int i) {
+        WorldState w = world;
+        double radius = CONST.PLAYER_RADIUS;
+        double step = w.speed[i] * tickStep;
+        double x = originX[i];
+        double y = originY[i];
+        while (true) {
+            double leadX = w.targetX[i] - x;
+            double leadY = w.targetY[i] - y;
+            double distance = Math.sqrt(leadX * leadX + leadY * leadY);
+            if (distance < GameBox.MIN_TARGET_DISTANCE) return false;
+            double ratio = Math.min(step / distance, 1.0);
+            x = x + leadX * ratio;
+            y = y + leadY * ratio;
+            if (x <= radius || x >= gameBox.width - radius || y <= radius || y >= gameBox.height - radius) return true;
+        }
+    }
+
+    /** @return seconds until a run from `position` at `velocity` touches `min` or `max`, infinite if never **/
+    private static double axisTime(double position, double velocity, double min, double max) {
+        if (velocity > 0) return Math.max(0, (max - position) / velocity);
+        if (velocity < 0) return Math.max(0, (min - position) / velocity);
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return the absolute time `i` and `j` start touching, infinite if they don't while closing in or still touch
+     * since their last contact
+     */
+    private double contactTime(int i, int j) {
+        double first = Math.max(time, Math.min(baseTime[i], baseTime[j]));
+        double second = Math.max(time, Math.max(baseTime[i], baseTime[j]));
+        if (first < second) {
+            // one of them still stands where it ran into something, the other is on its way
+            double t = contactTime(i, j, first, baseTime[i] <= first, baseTime[j] <= first);
+            if (t < second) return t;
+        }
+        return contactTime(i, j, second, true, true);
+    }
+
+    /** @return the first time from `from` on `i` and `j` touch while closing in, each standing unless it moves **/
+    private double contactTime(int i, int j, double from, boolean iMoves, boolean jMoves) {
+        WorldState w = world;
+        double ivx = iMoves ? vx[i] : 0;
+        double ivy = iMoves ? vy[i] : 0;
+        double jvx = jMoves ? vx[j] : 0;
+        double jvy = jMoves ? vy[j] : 0;
+        double iRan = Math.max(0, from - baseTime[i]);
+        double jRan = Math.max(0, from - baseTime[j]);
+        double dx = (w.x[i] + vx[i] * iRan) - (w.x[j] + vx[j] * jRan);
+        double dy = (w.y[i] + vy[i] * iRan) - (w.y[j] + vy[j] * jRan);
+        double rvx = ivx - jvx;
+        double rvy = ivy - jvy;
+        double b = dx * rvx + dy * rvy; // half of the linear term
+        double radius = CONST.PLAYER_RADIUS;
+        double c = dx * dx + dy * dy - radius * radius * 4;
+        if (touchingCount[i] > 0 && touchingCount[j] > 0 && stillTouching(i, j, b, c)) return Double.POSITIVE_INFINITY;
+        if (b >= 0) return Double.POSITIVE_INFINITY; // not closing in
+        if (c <= 0) return from; // touching and closing in
+        double a = rvx * rvx + rvy * rvy;
+        double discriminant = b * b - a * c;
+        if (discriminant < 0) return Double.POSITIVE_INFINITY; // passing by
+        return from + (-b - Math.sqrt(discriminant)) / a;
+    }
+
+    /**
+     * @return true if `i` and `j` touched and neither move apart nor are {@link #SEPARATION} apart yet, forgets them
+     * once they do
+     */
+    private boolean stillTouching(int i, int j, double b, double c) {
+        long pair = PairSet.pair(i, j);
+        if (b < 0 && c <= SEPARATION) return touching.contains(pair);
+        if (touching.remove(pair)) {
+            touchingCount[i]--;
+            touchingCount[j]--;
+        }
+        return false;
+    }
+
+    /** restores the heap order around entity `i`, whose event time changed **/
+    private void update(int i) {
+        int h = heapIndex[i];
+        siftUp(h);
+        siftDown(heapIndex[i]);
+    }
+
+    private void siftUp(int h) {
+        int entity = heap[h];
+        while (h > 0) {
+            int parent = (h - 1) >>> 1;
+            if (eventTime[heap[parent]] <= eventTime[entity]) break;
+            place(heap[parent], h);
+            h = parent;
+        }
+        place(entity, h);
+    }
+
+    private void siftDown(int h) {
+        int n = heap.length;
+        int entity = heap[h];
+        while (true) {
+            int child = 2 * h + 1;
+            if (child >= n) break;
+            if (child + 1 < n && eventTime[heap[child + 1]] < eventTime[heap[child]]) child++;
+            if (eventTime[entity] <= eventTime[heap[child]]) break;
+            place(heap[child], h);
+            h = child;
+        }
+        place(entity, h);
+    }
+
+    private void place(int entity, int h) {
+        heap[h] = entity;
+        heapIndex[entity] = h;
+    }
+}
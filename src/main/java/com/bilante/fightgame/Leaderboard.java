@@ -0,0 +1,132 @@
+package com.bilante.fightgame;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Live HP ranking of the players of a match, kept by a {@link HealthRanking}. The ListView items are the ranks, which
+ * never change, so a move touches no list: the ListView only materializes the rows in sight and redraws them once
+ * per batch of changes, whatever the number of players.
+ *
+ * HP changes come from the simulation thread; they are collected under the lock of the ranking and applied on the FX
+ * thread by a single runLater per batch. Each row also shows the chance of the player to win, once a
+ * {@link WinEstimator} reports one.
+ */
+public class Leaderboard {
+    private static final double BAR_WIDTH = 110;
+    private static final double BAR_HEIGHT = 14;
+
+    final String[] names;
+    final double[] maxHealth;
+    final HealthRanking ranking;
+    final double[] winShare; // estimated chance to win of every id, NaN until reported
+    final ListView<Integer> view;
+
+    /** @param maxHealth starting HP of every player, also what a full bar stands for **/
+    public Leaderboard(String[] names, double[] maxHealth) {
+        int n = names.length;
+        this.names = names;
+        this.maxHealth = maxHealth;
+        ranking = new HealthRanking(maxHealth);
+        winShare = new double[n];
+        Arrays.fill(winShare, Double.NaN);
+        Integer[] ranks = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            ranks[i] = i;
+        }
+        ObservableList<Integer> items = FXCollections.observableArrayList(ranks);
+        view = new ListView<>(items);
+        view.setFixedCellSize(28); // every row alike, the flow never measures one
+        view.setCellFactory(list -> new Row());
+    }
+
+    /** @return the leaderboard of the players entered in the side panel **/
+    public static Leaderboard of(List<SidePanel.PlayerInfoDisplay> players) {
+        String[] names = new String[players.size()];
+        double[] maxHealth = new double[players.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = players.get(i).name;
+            maxHealth[i] = players.get(i).health;
+        }
+        return new Leaderboard(names, maxHealth);
+    }
+
+    /** simulation side: records the new HP of `id`, shown on the next FX pulse **/
+    public void report(int id, double newHealth) {
+        if (ranking.report(id, newHealth)) {
+            Platform.runLater(this::drain);
+        }
+    }
+
+    /** any thread: shows `shares` as the chance to win of every player, from the next FX pulse **/
+    public void reportWinShares(double[] shares) {
+        Platform.runLater(() -> {
+            System.arraycopy(shares, 0, winShare, 0, Math.min(shares.length, winShare.length));
+            view.refresh();
+        });
+    }
+
+    /** FX side: applies the changes reported since the last drain and redraws the visible rows **/
+    private void drain() {
+        ranking.drain();
+        view.refresh();
+    }
+
+    /** one row, reused for whichever rank scrolls into it **/
+    private class Row extends ListCell<Integer> {
+        private final Rectangle swatch = new Rectangle(10, 10);
+        private final Label name = new Label();
+        private final Rectangle bar = new Rectangle(BAR_WIDTH, BAR_HEIGHT);
+        private final Label hp = new Label();
+        private final Label odds = new Label();
+        private final HBox graphic;
+
+        Row() {
+            Rectangle background = new Rectangle(BAR_WIDTH, BAR_HEIGHT, Color.LIGHTGRAY);
+            background.setArcWidth(6);
+            background.setArcHeight(6);
+            bar.setArcWidth(6);
+            bar.setArcHeight(6);
+            StackPane healthBar = new StackPane(background, bar);
+            healthBar.setAlignment(Pos.CENTER_LEFT);
+            name.setPrefWidth(70);
+            hp.setPrefWidth(34);
+            graphic = new HBox(6, swatch, name, healthBar, hp, odds);
+            graphic.setAlignment(Pos.CENTER_LEFT);
+            graphic.setPadding(new Insets(0, 2, 0, 2));
+            setText(null);
+        }
+
+        @Override
+        protected void updateItem(Integer item, boolean empty) {
+            super.updateItem(item, empty);
+            if (empty || item == null) {
+                setGraphic(null);
+                return;
+            }
+            int id = ranking.order[item];
+            double[] health = ranking.health;
+            double ratio = Math.max(0, Math.min(1, health[id] / maxHealth[id]));
+            swatch.setFill(UICONST.color(id));
+            name.setText(names[id]);
+            bar.setWidth(health[id] > 0 ? Math.max(1, ratio * BAR_WIDTH) : 1);
+            bar.setFill(health[id] > 0 ? UICONST.color(id) : Color.BLACK); // black on death
+            hp.setText(health[id] > 0 ? String.format("%.2f", health[id]) : "dead");
+            odds.setText(Double.isNaN(winShare[id]) ? "" : Math.round(winShare[id] * 100) + "%");
+            setGraphic(graphic);
+        }
+    }
+}
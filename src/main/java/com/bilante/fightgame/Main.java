@@ -1,5 +1,6 @@
 package com.bilante.fightgame;
 
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -7,21 +8,77 @@ import javafx.scene.Scene;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
 
 public class Main extends Application {
+    public static final String VIEWS_PROPERTY = "fightgame.views"; // code (default) or fxml
+
     @Override
     public void start(Stage stage) throws IOException {
-        FXMLLoader fxmlLoader = new FXMLLoader(Main.class.getResource("main-view.fxml"));
-        Parent root = fxmlLoader.load();
+        long started = System.nanoTime();
+        // --renderer=canvas on the command line, same as -Dfightgame.renderer=canvas
+        String renderer = getParameters().getNamed().get("renderer");
+        if (renderer != null) System.setProperty(ArenaRenderer.PROPERTY, renderer);
+        // --record=dir on the command line, same as -Dfightgame.record=dir
+        String record = getParameters().getNamed().get("record");
+        if (record != null) System.setProperty(ReplayRecorder.PROPERTY, record);
+        // --tick-rate=120 on the command line, same as -Dfightgame.tickRate=120
+        String tickRate = getParameters().getNamed().get("tick-rate");
+        if (tickRate != null) System.setProperty(SimulationLoop.PROPERTY, tickRate);
+        // --cache=file on the command line, same as -Dfightgame.cache=file
+        String cache = getParameters().getNamed().get("cache");
+        if (cache != null) System.setProperty(MatchCache.PROPERTY, cache);
+        // --spectate=host:port on the command line, same as -Dfightgame.spectate=host:port
+        String spectate = getParameters().getNamed().get("spectate");
+        if (spectate != null) System.setProperty(SpectatorClient.PROPERTY, spectate);
+        // --share-world=file on the command line, same as -Dfightgame.shareWorld=file
+        String shareWorld = getParameters().getNamed().get("share-world");
+        if (shareWorld != null) System.setProperty(WorldImage.PROPERTY, shareWorld);
+        // --hud=true on the command line, same as -Dfightgame.hud=true; F3 toggles it anyway
+        String hud = getParameters().getNamed().get("hud");
+        if (hud != null) System.setProperty(PerfHud.PROPERTY, hud);
+        // --win-estimate=false on the command line, same as -Dfightgame.winEstimate=false
+        String winEstimate = getParameters().getNamed().get("win-estimate");
+        if (winEstimate != null) System.setProperty(WinEstimator.PROPERTY, winEstimate);
+        // --views=fxml on the command line, same as -Dfightgame.views=fxml
+        String views = getParameters().getNamed().get("views");
+        if (views != null) System.setProperty(VIEWS_PROPERTY, views);
+
+        Parent root = switch (System.getProperty(VIEWS_PROPERTY, "code")) {
+            // the FXML files stay the reference for Scene Builder, building in code skips the reflective loader
+            case "code" -> new MainController().buildView();
+            case "fxml" -> new FXMLLoader(Main.class.getResource("main-view.fxml")).load();
+            default -> throw new IllegalArgumentException("Unknown views " + System.getProperty(VIEWS_PROPERTY) + ", expected code or fxml");
+        };
+        long built = System.nanoTime();
 
-        Scene scene = new Scene(root, 800, 540);
+        Scene scene = new Scene(root, 800, 580);
         stage.setTitle("Hello!");
         stage.setScene(scene);
         stage.show();
+        reportFirstFrame(started, built);
+    }
 
+    /** prints how long the first frame took, from the JVM start and from {@link #start(Stage)}, on the first pulse **/
+    private static void reportFirstFrame(long started, long built) {
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                stop();
+                long shown = System.nanoTime();
+                String sinceLaunch = ProcessHandle.current().info().startInstant()
+                        .map(launch -> Duration.between(launch, Instant.now()).toMillis() + " ms after launch, ")
+                        .orElse("");
+                System.err.printf(Locale.ROOT, "first frame %s%d ms after start() (%d ms building the views, %s)%n",
+                        sinceLaunch, (shown - started) / 1_000_000, (built - started) / 1_000_000,
+                        System.getProperty(VIEWS_PROPERTY, "code"));
+            }
+        }.start();
     }
 
     public static void main(String[] args) {
         launch();
     }
-}
\ No newline at end of file
+}
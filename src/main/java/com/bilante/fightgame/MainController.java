@@ -2,10 +2,20 @@ package com.bilante.fightgame;
 
 import javafx.animation.AnimationTimer;
 import javafx.fxml.FXML;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.Parent;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.Slider;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -13,8 +23,42 @@ public class MainController {
 
     @FXML private SidePanelController sidePanelController;
     @FXML private GameBoxController gameBoxController;
+    @FXML private Button replayToggle;
+    @FXML private Slider replaySlider;
 
     private GameData gameData;
+    private boolean updatingSlider = false; // true while the replay moves the slider, so it doesn't seek back
+
+    /** builds what main-view.fxml and its includes describe in code, then initializes like the loader would **/
+    public Parent buildView() {
+        sidePanelController = new SidePanelController();
+        gameBoxController = new GameBoxController();
+
+        VBox sidePanelBox = new VBox(10, sidePanelController.buildView());
+        sidePanelBox.setPrefWidth(250);
+
+        Button openReplay = new Button("Open replay");
+        openReplay.setOnAction(event -> openReplay());
+        replayToggle = new Button("Play");
+        replayToggle.setOnAction(event -> toggleReplay());
+        replayToggle.setDisable(true);
+        replaySlider = new Slider();
+        replaySlider.setDisable(true);
+        HBox.setHgrow(replaySlider, Priority.ALWAYS);
+        HBox replayBar = new HBox(10, openReplay, replayToggle, replaySlider);
+        replayBar.setAlignment(Pos.CENTER);
+
+        VBox mainContentBox = new VBox(20, gameBoxController.buildView(), replayBar);
+        mainContentBox.setAlignment(Pos.CENTER);
+        mainContentBox.setPrefSize(500, 500);
+        HBox.setHgrow(mainContentBox, Priority.ALWAYS);
+
+        HBox root = new HBox(20, sidePanelBox, mainContentBox);
+        root.setPadding(new Insets(20));
+        root.setStyle("-fx-background-color: rgba(170,26,26,0.93)");
+        initialize();
+        return root;
+    }
 
     public void initialize() {
         gameData = new GameData();
@@ -23,7 +67,70 @@ public class MainController {
 
         sidePanelController.quickStart();
 
+        gameBoxController.replayTickProperty().addListener((observable, oldValue, newValue) -> {
+            updatingSlider = true;
+            replaySlider.setValue(newValue.longValue());
+            updatingSlider = false;
+            if (!gameBoxController.isReplayPlaying()) replayToggle.setText("Play");
+        });
+        replaySlider.valueProperty().addListener((observable, oldValue, newValue) -> {
+            if (!updatingSlider) gameBoxController.seekReplay(newValue.longValue());
+        });
+        String spectate = System.getProperty(SpectatorClient.PROPERTY);
+        if (spectate != null) {
+            try {
+                Leaderboard leaderboard = gameBoxController.spectate(spectate);
+                if (leaderboard != null) sidePanelController.showLeaderboard(leaderboard);
+            } catch (IOException e) {
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setHeaderText(null);
+                alert.setContentText("Cannot watch " + spectate + ": " + e.getMessage());
+                alert.show();
+            }
+        }
+        gameData.dataReady.addListener((observable, oldValue, newValue) -> {
+            if (newValue) { // a match replaces the replay
+                replaySlider.setDisable(true);
+                replayToggle.setDisable(true);
+                replayToggle.setText("Play");
+            }
+        });
     }
 
+    @FXML
+    private void openReplay() {
+        if (gameData.dataReady.get()) return; // not during a match
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Open replay");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Replays", "*.fgr"));
+        File file = chooser.showOpenDialog(replaySlider.getScene().getWindow());
+        if (file == null) return;
+        try {
+            gameBoxController.playReplay(file.toPath());
+        } catch (IOException e) {
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setHeaderText(null);
+            alert.setContentText("Cannot open the replay: " + e.getMessage());
+            alert.show();
+            return;
+        }
+        updatingSlider = true;
+        replaySlider.setMin(gameBoxController.replayTickProperty().get());
+        replaySlider.setMax(gameBoxController.replayLastTick());
+        replaySlider.setValue(replaySlider.getMin());
+        updatingSlider = false;
+        replaySlider.setDisable(false);
+        replayToggle.setDisable(false);
+        replayToggle.setText("Play");
+    }
 
+    @FXML
+    private void toggleReplay() {
+        boolean play = !gameBoxController.isReplayPlaying();
+        if (play && gameBoxController.replayTickProperty().get() >= gameBoxController.replayLastTick()) {
+            gameBoxController.seekReplay(0); // start over from the end
+        }
+        gameBoxController.setReplayPlaying(play);
+        replayToggle.setText(play ? "Pause" : "Play");
+    }
 }
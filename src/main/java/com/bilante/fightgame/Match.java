@@ -0,0 +1,188 @@
+package com.bilante.fightgame;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Headless match: the same {@link GameBox} engine as the UI, stepped with a fixed timestep
+ * instead of an AnimationTimer. Nothing here touches JavaFX, so it runs as fast as the CPU allows.
+ * The same roster, seed and step always play the same match.
+ */
+public class Match {
+    public static final double MAX_DURATION = 600; // simulated seconds before the match is called a draw
+
+    final GameBox gameBox;
+    final long seed;
+    final double step;
+    final double[] deathTimes;
+    private ReplayRecorder recorder;
+    private KineticEngine kinetic; // null while the match is stepped tick by tick
+
+    public Match(List<SidePanel.PlayerInput> inputs) {
+        this(inputs, MatchRandom.freshSeed());
+    }
+
+    public Match(List<SidePanel.PlayerInput> inputs, long seed) {
+        this(inputs, seed, CONST.FIXED_STEP);
+    }
+
+    /** @param step simulated seconds per tick **/
+    public Match(List<SidePanel.PlayerInput> inputs, long seed, double step) {
+        if (inputs.size() < 2) { throw new IllegalArgumentException("At least two players"); }
+        this.seed = seed;
+        this.step = step;
+        gameBox = new GameBox(CONST.GAME_WIDTH, CONST.GAME_HEIGHT, seed);
+        gameBox.mirrorPlayers = false;
+        for (int i = 0; i < inputs.size(); i++) {
+            SidePanel.PlayerInput input = inputs.get(i);
+            String name = input.name != null ? input.name : "PLAYER " + (i + 1);
+            gameBox.addPlayer(
+                    name,
+                    CONST.healthFromPoints(input.healthPoints),
+                    CONST.damagesFromPoints(input.damagePoints),
+                    CONST.speedFromPoints(input.speedPoints)
+            );
+            if (input.strategy != null) gameBox.setStrategy(i, Strategy.named(input.strategy));
+        }
+        gameBox.placePlayersOnStart();
+        deathTimes = new double[inputs.size()];
+        for (int i = 0; i < deathTimes.length; i++) {
+            deathTimes[i] = gameBox.world.dead[i] ? 0 : Double.NaN;
+        }
+        trackDeaths();
+    }
+
+    /** plays on from `checkpoint`, the same continuation as the match it was taken from **/
+    public Match(Checkpoint checkpoint) {
+        this(checkpoint, checkpoint.fork(), checkpoint.seed);
+    }
+
+    /** plays on from `checkpoint` with its random targets drawn from `seed`, one of the ways the match could go on **/
+    public Match(Checkpoint checkpoint, long seed) {
+        this(checkpoint, checkpoint.fork(seed), seed);
+    }
+
+    private Match(Checkpoint checkpoint, GameBox gameBox, long seed) {
+        this.seed = seed;
+        this.step = checkpoint.step;
+        this.gameBox = gameBox;
+        if (checkpoint.deathTimes != null) {
+            deathTimes = checkpoint.deathTimes.clone();
+        } else {
+            deathTimes = new double[gameBox.world.size];
+            for (int i = 0; i < deathTimes.length; i++) {
+                deathTimes[i] = gameBox.world.dead[i] ? 0 : Double.NaN; // when is unknown
+            }
+        }
+        trackDeaths();
+    }
+
+    private void trackDeaths() {
+        gameBox.addListener(new GameListener() {
+            @Override
+            public void onHealthChanged(int id, double oldHealth, double newHealth) {
+                if (newHealth <= 0 && oldHealth > 0) deathTimes[id] = elapsed();
+            }
+        });
+    }
+
+    /** @return true while at least two players are alive and the time limit is not reached **/
+    public boolean isRunning() {
+        return !gameBox.isOver() && elapsed() < MAX_DURATION;
+    }
+
+    /** advances the match by one fixed step, or by `step` seconds worth of events with the kinetic engine **/
+    public void tick() {
+        if (kinetic != null) {
+            kinetic.advance(kinetic.time + step);
+        } else {
+            gameBox.step(step);
+        }
+    }
+
+    /**
+     * runs the match on the event driven {@link KineticEngine} instead of stepping it, much faster for batches of
+     * small matches. Call before the first tick, on rosters of up to {@link KineticEngine#MAX_PLAYERS} players
+     */
+    public Match kinetic() {
+        if (gameBox.ticks > 0) { throw new IllegalStateException("The kinetic engine plays whole matches, this one is under way"); }
+        if (recorder != null) { throw new IllegalStateException("Replays record ticks, the kinetic engine has none"); }
+        if (gameBox.hasStrategies()) { throw new IllegalStateException("Strategies steer every tick, the kinetic engine has none"); }
+        if (gameBox.world.size > KineticEngine.MAX_PLAYERS) {
+            throw new IllegalStateException("The kinetic engine tests every pair, " + gameBox.world.size + " players are more than "
+                    + KineticEngine.MAX_PLAYERS + ", step them tick by tick");
+        }
+        kinetic = new KineticEngine(gameBox, step);
+        return this;
+    }
+
+    /** records every tick of the match to `file`, see {@link ReplayRecorder}. Call before the first tick **/
+    public void record(Path file) throws IOException {
+        if (kinetic != null) { throw new IllegalStateException("Replays record ticks, the kinetic engine has none"); }
+        recorder = new ReplayRecorder(file, gameBox, step);
+        gameBox.addListener(recorder);
+    }
+
+    /** @return the state of the match now, for {@link #Match(Checkpoint, long)} to play on from. Tick engine only **/
+    public Checkpoint checkpoint() {
+        if (kinetic != null) { throw new IllegalStateException("The kinetic engine keeps its own state"); }
+        return new Checkpoint(gameBox, step, deathTimes.clone());
+    }
+
+    public MatchResult run() {
+        try {
+            if (kinetic != null) {
+                kinetic.advance(MAX_DURATION); // straight to the end, no need for intermediate stops
+            }
+            while (isRunning()) {
+                tick();
+            }
+        } finally {
+            stopRecording();
+        }
+        return result();
+    }
+
+    private void stopRecording() {
+        if (recorder == null) return;
+        gameBox.removeListener(recorder);
+        try {
+            recorder.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        recorder = null;
+    }
+
+    public double elapsed() {
+        return kinetic != null ? kinetic.time : gameBox.ticks * step;
+    }
+
+    public MatchResult result() {
+        int winner = gameBox.survivor();
+        double[] finalHealth = new double[gameBox.world.size];
+        for (int i = 0; i < finalHealth.length; i++) {
+            finalHealth[i] = Math.max(0, gameBox.world.health[i]);
+        }
+        return new MatchResult(
+                seed,
+                winner,
+                winner == -1 ? null : gameBox.players.get(winner).name,
+                gameBox.ticks,
+                elapsed(),
+                finalHealth,
+                deathTimes.clone()
+        );
+    }
+
+    /**
+     * @param seed replays this very match when passed back to {@link Match#Match(List, long)} with the same roster
+     * @param winnerIndex index in the roster, -1 on a draw (time limit reached or nobody left)
+     * @param ticks steps simulated, events handled on the kinetic engine
+     * @param deathTimes simulated second each player died at, NaN for the ones still alive
+     */
+    public record MatchResult(long seed, int winnerIndex, String winnerName, long ticks, double duration,
+                              double[] finalHealth, double[] deathTimes) { }
+}
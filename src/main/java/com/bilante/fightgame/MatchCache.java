@@ -0,0 +1,411 @@
+package com.bilante.fightgame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Results of headless matches, so sweeps and winner predictions don't play the same match twice. A match is fully
+ * determined by the point splits of its roster, in order, its seed, its step and its engine; names play no part.
+ * The newest results stay in an LRU map, all of them can also go to a binary file that outlives the process.
+ *
+ * The file is stamped with {@link #RULES}, a fingerprint of what the CONST formulas give for every point count and
+ * of the arena constants: a cache file written under other rules or by another version is emptied when opened, any
+ * other file is refused untouched. Opening it reads the keys in one streaming pass, whatever its size. The index of
+ * the records on disk is a table of a 64 bit fingerprint of each key and the offset of its record, under 32 bytes a
+ * record however large the file grows; a lookup confirms a fingerprint against the key stored in the record.
+ *
+ * <pre>
+ * header  int magic, int version, long rules
+ * record  int players, players * (byte damage, byte speed, byte health points), long seed, double step,
+ *         byte kinetic, int winner index, long ticks, double duration, players * (double health, double death time)
+ * </pre>
+ * Everything is little endian.
+ */
+public class MatchCache implements Closeable {
+    public static final String PROPERTY = "fightgame.cache"; // file of the disk tier of the shared cache
+    public static final int DEFAULT_CAPACITY = 4096; // results kept in memory
+    public static final long PREDICTION_SEED = 0x5eed; // base seed of the matches behind a prediction
+    static final int MAGIC = 0x434d4746; // "FGMC" read as little endian bytes
+    static final int VERSION = 2; // 2: int player counts and winners
+    static final int HEADER_SIZE = 16;
+    private static final int READ_CHUNK = 1 << 16; // bytes read at a time when the index is built
+    /**
+     * bump by hand when the engine plays the same roster and seed differently. {@link #RULES} only fingerprints the
+     * CONST formulas and arena constants, nothing detects a change of the engine code itself: results cached before
+     * it would be served as they are. MatchCacheTest fails on such a change only for the few matches it pins
+     */
+    static final int ENGINE_REVISION = 4; // 2: contact damage resolved both ways per pair, 3: contacts in id order,
+    // 4: kinetic engine timed on the ticks
+    static final long RULES = rulesFingerprint();
+    private static MatchCache shared;
+
+    private final LinkedHashMap<Key, Match.MatchResult> memory;
+    private final FileChannel channel; // null without a disk tier
+    // records on disk, open addressing on the fingerprint of their key: 0 for a free slot, records start past the header
+    private long[] fingerprints = new long[1024];
+    private long[] offsets = new long[1024];
+    private int records = 0;
+    private ByteBuffer buffer = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+    private long end;
+    private long hits = 0;
+    private long misses = 0;
+
+    /** memory only **/
+    public MatchCache(int capacity) {
+        memory = lru(capacity);
+        channel = null;
+    }
+
+    /**
+     * keeps every result in `file` too, reading back the ones already there if they were played under these rules
+     * @throws IOException if `file` is not empty and not a match cache
+     */
+    public MatchCache(int capacity, Path file) throws IOException {
+        memory = lru(capacity);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean indexed;
+        try {
+            indexed = readIndex(file);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        if (!indexed) {
+            channel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putLong(RULES).flip();
+            channel.write(header, 0);
+            end = HEADER_SIZE;
+        }
+    }
+
+    private static LinkedHashMap<Key, Match.MatchResult> lru(int capacity) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Match.MatchResult> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /** @return the cache of the process, on the file named by the {@value #PROPERTY} system property if any **/
+    public static synchronized MatchCache shared() {
+        if (shared == null) {
+            String file = System.getProperty(PROPERTY);
+            try {
+                shared = file == null ? new MatchCache(DEFAULT_CAPACITY) : new MatchCache(DEFAULT_CAPACITY, Path.of(file));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return shared;
+    }
+
+    /** @return the result of the match, played now unless known already **/
+    public Match.MatchResult run(List<SidePanel.PlayerInput> inputs, long seed, double step, boolean kinetic) {
+        if (inputs.stream().anyMatch(input -> input.strategy != null)) {
+            return new Match(inputs, seed, step).run(); // the key only holds the splits
+        }
+        Key key = new Key(inputs, seed, step, kinetic);
+        Match.MatchResult result = get(key);
+        if (result == null) {
+            Match match = new Match(inputs, seed, step);
+            if (kinetic) match.kinetic();
+            result = match.run();
+            put(key, result);
+            return result;
+        }
+        int winner = result.winnerIndex();
+        String name = winner == -1 ? null : inputs.get(winner).name != null ? inputs.get(winner).name : "PLAYER " + (winner + 1);
+        return new Match.MatchResult(seed, winner, name, result.ticks(), result.duration(),
+                result.finalHealth().clone(), result.deathTimes().clone());
+    }
+
+    /**
+     * plays `rounds` kinetic matches of the roster, the same seeds every time so a repeated question costs nothing
+     * @return the share of the matches won by every entry of the roster
+     */
+    public double[] winShares(List<SidePanel.PlayerInput> inputs, int rounds) {
+        int[] wins = new int[inputs.size()];
+        for (int round = 0; round < rounds; round++) {
+            int winner = run(inputs, MatchRandom.seedFor(PREDICTION_SEED, round), CONST.FIXED_STEP, true).winnerIndex();
+            if (winner != -1) wins[winner]++;
+        }
+        double[] shares = new double[wins.length];
+        for (int i = 0; i < wins.length; i++) {
+            shares[i] = (double) wins[i] / rounds;
+        }
+        return shares;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    private synchronized Match.MatchResult get(Key key) {
+        Match.MatchResult result = memory.get(key);
+        if (result == null && channel != null) {
+            result = find(key);
+            if (result != null) memory.put(key, result);
+        }
+        if (result == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return result;
+    }
+
+    private synchronized void put(Key key, Match.MatchResult result) {
+        memory.put(key, result);
+        if (channel == null || find(key) != null) return; // another worker played it meanwhile
+        int players = key.roster.length / 3;
+        ensure(Math.toIntExact(recordSize(players)));
+        buffer.clear();
+        buffer.putInt(players).put(key.roster).putLong(key.seed).putDouble(key.step).put((byte) (key.kinetic ? 1 : 0))
+                .putInt(result.winnerIndex()).putLong(result.ticks()).putDouble(result.duration());
+        for (int i = 0; i < players; i++) {
+            buffer.putDouble(result.finalHealth()[i]).putDouble(result.deathTimes()[i]);
+        }
+        buffer.flip();
+        try {
+            long offset = end;
+            while (buffer.hasRemaining()) {
+                end += channel.write(buffer, end);
+            }
+            index(key.fingerprint(), offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return false if the file is empty or is a cache of another version or of other rules, to start over
+     * @throws IOException if the file is something else than a cache
+     */
+    private boolean readIndex(Path file) throws IOException {
+        long size = channel.size();
+        if (size == 0) return false;
+        Chunk chunk = new Chunk(size);
+        if (size < Integer.BYTES || chunk.at(0, Integer.BYTES).getInt() != MAGIC) {
+            throw new IOException("Not a FightGame match cache, left as it is: " + file);
+        }
+        if (size < HEADER_SIZE) return false;
+        ByteBuffer header = chunk.at(Integer.BYTES, HEADER_SIZE - Integer.BYTES);
+        if (header.getInt() != VERSION || header.getLong() != RULES) return false;
+        long position = HEADER_SIZE;
+        while (size - position >= Integer.BYTES) {
+            int players = chunk.at(position, Integer.BYTES).getInt();
+            long recordSize = recordSize(players);
+            if (players < 0 || size - position < recordSize) break; // cut short by a crash
+            ByteBuffer key = chunk.at(position + Integer.BYTES, players * 3 + 17);
+            byte[] roster = new byte[players * 3];
+            key.get(roster);
+            index(Key.fingerprint(roster, key.getLong(), key.getDouble(), key.get() == 1), position);
+            position += recordSize;
+        }
+        end = position;
+        channel.truncate(end);
+        return true;
+    }
+
+    /** the window of the file the index is read through, {@value #READ_CHUNK} bytes at a time **/
+    private final class Chunk {
+        private final long size;
+        private ByteBuffer bytes = ByteBuffer.allocate(READ_CHUNK).order(ByteOrder.LITTLE_ENDIAN).limit(0);
+        private long start = 0; // file offset of bytes[0]
+
+        Chunk(long size) {
+            this.size = size;
+        }
+
+        /** @return the window positioned on file offset `from`, with `count` bytes after it (less at the end of the file) **/
+        ByteBuffer at(long from, int count) throws IOException {
+            if (from < start || from + count > start + bytes.limit()) {
+                if (bytes.capacity() < count) bytes = ByteBuffer.allocate(count).order(ByteOrder.LITTLE_ENDIAN);
+                bytes.clear().limit((int) Math.min(bytes.capacity(), size - from));
+                while (bytes.hasRemaining() && channel.read(bytes, from + bytes.position()) >= 0) { }
+                bytes.flip();
+                start = from;
+            }
+            return bytes.position((int) (from - start));
+        }
+    }
+
+    /** @return the result recorded on disk for `key`, null if there is none **/
+    private Match.MatchResult find(Key key) {
+        long fingerprint = key.fingerprint();
+        int mask = offsets.length - 1;
+        for (int s = slot(fingerprint, mask); offsets[s] != 0; s = (s + 1) & mask) {
+            if (fingerprints[s] != fingerprint) continue;
+            Match.MatchResult result = readRecord(offsets[s], key);
+            if (result != null) return result;
+        }
+        return null;
+    }
+
+    private void index(long fingerprint, long offset) {
+        if (++records * 2 > offsets.length) {
+            long[] oldFingerprints = fingerprints;
+            long[] oldOffsets = offsets;
+            fingerprints = new long[oldOffsets.length * 2];
+            offsets = new long[oldOffsets.length * 2];
+            for (int s = 0; s < oldOffsets.length; s++) {
+                if (oldOffsets[s] != 0) place(oldFingerprints[s], oldOffsets[s]);
+            }
+        }
+        place(fingerprint, offset);
+    }
+
+    private void place(long fingerprint, long offset) {
+        int mask = offsets.length - 1;
+        int s = slot(fingerprint, mask);
+        while (offsets[s] != 0) s = (s + 1) & mask;
+        fingerprints[s] = fingerprint;
+        offsets[s] = offset;
+    }
+
+    private static int slot(long fingerprint, int mask) {
+        return (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+    }
+
+    private static long recordSize(int players) {
+        return 4 + players * 3L + 8 + 8 + 1 + 4 + 8 + 8 + players * 16L;
+    }
+
+    /** @return the result of the record at `offset`, null if it is the record of another key than `key` **/
+    private Match.MatchResult readRecord(long offset, Key key) {
+        try {
+            int players = key.roster.length / 3;
+            int size = Math.toIntExact(recordSize(players));
+            ensure(size);
+            buffer.clear().limit(size);
+            while (buffer.hasRemaining() && channel.read(buffer, offset + buffer.position()) >= 0) { }
+            if (buffer.position() < size || buffer.getInt(0) != players
+                    || !Arrays.equals(key.roster, 0, key.roster.length, buffer.array(), 4, 4 + key.roster.length)) {
+                return null;
+            }
+            buffer.position(4 + players * 3);
+            long seed = buffer.getLong();
+            double step = buffer.getDouble();
+            boolean kinetic = buffer.get() == 1;
+            if (seed != key.seed || Double.compare(step, key.step) != 0 || kinetic != key.kinetic) return null;
+            int winner = buffer.getInt();
+            long ticks = buffer.getLong();
+            double duration = buffer.getDouble();
+            double[] health = new double[players];
+            double[] deaths = new double[players];
+            for (int i = 0; i < players; i++) {
+                health[i] = buffer.getDouble();
+                deaths[i] = buffer.getDouble();
+            }
+            return new Match.MatchResult(seed, winner, null, ticks, duration, health, deaths);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void ensure(int bytes) {
+        if (buffer.capacity() < bytes) buffer = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) channel.close();
+    }
+
+    /** @return a hash of the outputs of the CONST formulas for every point count and of the arena constants **/
+    static long rulesFingerprint() {
+        long hash = ENGINE_REVISION;
+        for (int points = 0; points < CONST.SHARED_POINTS; points++) {
+            hash = fold(hash, Double.doubleToLongBits(CONST.damagesFromPoints(points)));
+            hash = fold(hash, CONST.speedFromPoints(points));
+        }
+        for (int points = 0; points <= CONST.SHARED_POINTS; points++) {
+            hash = fold(hash, Double.doubleToLongBits(CONST.healthFromPoints(points)));
+        }
+        hash = fold(hash, CONST.PLAYER_RADIUS);
+        hash = fold(hash, Double.doubleToLongBits(CONST.GAME_WIDTH));
+        hash = fold(hash, Double.doubleToLongBits(CONST.GAME_HEIGHT));
+        hash = fold(hash, Double.doubleToLongBits(CONST.startLineRadius));
+        hash = fold(hash, Double.doubleToLongBits(CONST.centerXY[0]));
+        hash = fold(hash, Double.doubleToLongBits(CONST.centerXY[1]));
+        hash = fold(hash, Double.doubleToLongBits(GameBox.MIN_TARGET_DISTANCE));
+        hash = fold(hash, Double.doubleToLongBits(Match.MAX_DURATION));
+        return hash;
+    }
+
+    private static long fold(long hash, long value) {
+        return MatchRandom.seedFor(hash, value);
+    }
+
+    /** what a match result depends on: the splits of the roster in order, seed, step and engine **/
+    static final class Key {
+        final byte[] roster; // damage, speed and health points of every entry
+        final long seed;
+        final double step;
+        final boolean kinetic;
+        private final int hash;
+
+        Key(List<SidePanel.PlayerInput> inputs, long seed, double step, boolean kinetic) {
+            this(splits(inputs), seed, step, kinetic);
+        }
+
+        Key(byte[] roster, long seed, double step, boolean kinetic) {
+            this.roster = roster;
+            this.seed = seed;
+            this.step = step;
+            this.kinetic = kinetic;
+            hash = ((Arrays.hashCode(roster) * 31 + Long.hashCode(seed)) * 31 + Double.hashCode(step)) * 31 + (kinetic ? 1 : 0);
+        }
+
+        /** @return 64 bits of the key, for the index of the records on disk **/
+        long fingerprint() {
+            return fingerprint(roster, seed, step, kinetic);
+        }
+
+        static long fingerprint(byte[] roster, long seed, double step, boolean kinetic) {
+            long hash = fold(seed, Double.doubleToLongBits(step));
+            hash = fold(hash, kinetic ? 1 : 0);
+            for (byte points : roster) {
+                hash = fold(hash, points);
+            }
+            return hash;
+        }
+
+        private static byte[] splits(List<SidePanel.PlayerInput> inputs) {
+            byte[] roster = new byte[inputs.size() * 3];
+            for (int i = 0; i < inputs.size(); i++) {
+                roster[i * 3] = (byte) inputs.get(i).damagePoints;
+                roster[i * 3 + 1] = (byte) inputs.get(i).speedPoints;
+                roster[i * 3 + 2] = (byte) inputs.get(i).healthPoints;
+            }
+            return roster;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key key && seed == key.seed && Double.compare(step, key.step) == 0
+                    && kinetic == key.kinetic && Arrays.equals(roster, key.roster);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
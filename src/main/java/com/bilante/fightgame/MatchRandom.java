@@ -0,0 +1,45 @@
+package com.bilante.fightgame;
+
+/**
+ * Per match random source (SplitMix64). Every {@link GameBox} owns one, so parallel matches never contend
+ * on a shared generator, and a seed fully determines the sequence. The whole state is one long.
+ */
+public class MatchRandom {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    long state;
+
+    public MatchRandom(long seed) {
+        this.state = seed;
+    }
+
+    public long nextLong() {
+        return mix(state += GOLDEN_GAMMA);
+    }
+
+    /** @return a double in [0, 1) **/
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /** @return an independent generator, advances this one **/
+    public MatchRandom split() {
+        return new MatchRandom(nextLong());
+    }
+
+    /** @return the seed of the `index`-th match of a batch started from `baseSeed`, whatever order the matches run in **/
+    public static long seedFor(long baseSeed, long index) {
+        return mix(baseSeed + index * GOLDEN_GAMMA);
+    }
+
+    /** @return a seed for a match nobody asked to reproduce **/
+    public static long freshSeed() {
+        return mix(System.nanoTime() ^ Thread.currentThread().threadId() * GOLDEN_GAMMA);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
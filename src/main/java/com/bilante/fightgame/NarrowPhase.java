@@ -0,0 +1,121 @@
+package com.bilante.fightgame;
+
+import java.util.Arrays;
+
+/**
+ * Swept circle test of the candidate pairs of a step. The broad phase leaves the entities in cell order in the
+ * slots of a {@link SpatialGrid}, so every entity is tested against two runs of slots (its own cell and the one on
+ * its right, then the three cells below), or against every later slot in a sparse arena. {@link #block} tests one
+ * entity against one run; this class does it one pair at a time, {@link VectorNarrowPhase} a vector of pairs at
+ * a time.
+ *
+ * The touching pairs come out sorted by ids whatever the kernel and the walk, so both kernels give the same matches.
+ */
+public class NarrowPhase {
+    public static final String PROPERTY = "fightgame.narrowphase"; // scalar (default) or vector
+    static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static volatile boolean warned = false;
+
+    /** touching pairs of the last {@link #collect}, lower id in the high half, sorted **/
+    long[] contacts = new long[64];
+    int contactCount = 0;
+    int candidateCount = 0;
+
+    /**
+     * @return the kernel named by the {@value #PROPERTY} system property. The vector one falls back to the scalar
+     * one, with a warning, when the JVM lacks the Vector API
+     */
+    public static NarrowPhase fromSettings() {
+        String name = System.getProperty(PROPERTY, "scalar");
+        return switch (name) {
+            case "scalar" -> new NarrowPhase();
+            case "vector" -> {
+                if (vectorAvailable()) yield new VectorNarrowPhase();
+                if (!warned) {
+                    warned = true;
+                    System.err.println("The vector narrow phase needs --add-modules " + VECTOR_MODULE + ", using the scalar one");
+                }
+                yield new NarrowPhase();
+            }
+            default -> throw new IllegalArgumentException("Unknown narrow phase " + name + ", expected scalar or vector");
+        };
+    }
+
+    /** @return true if the JVM was started with the Vector API, an incubator module it only loads on request **/
+    static boolean vectorAvailable() {
+        return ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent();
+    }
+
+    /**
+     * tests the entities `grid` holds in its slots, after {@link SpatialGrid#build} or {@link SpatialGrid#identity}
+     * and {@link SpatialGrid#gather}
+     * @param sparse true if the slots are in id order and every pair is a candidate
+     * @return the number of touching pairs
+     */
+    int collect(SpatialGrid grid, int n, boolean sparse, double minSquaredDistance) {
+        contactCount = 0;
+        candidateCount = 0;
+        if (sparse) {
+            for (int s = 0; s < n; s++) {
+                block(grid, s, s + 1, n, minSquaredDistance);
+            }
+        } else {
+            int columns = grid.columns;
+            int rows = grid.rows;
+            int[] cellStart = grid.cellStart;
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < columns; c++) {
+                    int cell = r * columns + c;
+                    int from = cellStart[cell];
+                    int to = cellStart[cell + 1];
+                    if (from == to) continue;
+                    int sideEnd = c + 1 < columns ? cellStart[cell + 2] : to; // this cell then the right one
+                    int belowFrom = 0;
+                    int belowTo = 0;
+                    if (r + 1 < rows) {
+                        belowFrom = cellStart[cell + columns - (c > 0 ? 1 : 0)];
+                        belowTo = cellStart[cell + columns + (c + 1 < columns ? 2 : 1)];
+                    }
+                    for (int s = from; s < to; s++) {
+                        block(grid, s, s + 1, sideEnd, minSquaredDistance);
+                        if (belowFrom < belowTo) block(grid, s, belowFrom, belowTo, minSquaredDistance);
+                    }
+                }
+            }
+        }
+        Arrays.sort(contacts, 0, contactCount);
+        return contactCount;
+    }
+
+    /** tests the entity of slot `s` against the slots [from, to) **/
+    void block(SpatialGrid grid, int s, int from, int to, double minSquaredDistance) {
+        double[] xs = grid.slotX;
+        double[] ys = grid.slotY;
+        double[] moveXs = grid.slotMoveX;
+        double[] moveYs = grid.slotMoveY;
+        double x = xs[s];
+        double y = ys[s];
+        double moveX = moveXs[s];
+        double moveY = moveYs[s];
+        candidateCount += to - from;
+        for (int o = from; o < to; o++) {
+            double t = GameBox.impactTime(x - xs[o], y - ys[o], moveX - moveXs[o], moveY - moveYs[o], minSquaredDistance);
+            if (t <= 1) addContact(grid, s, o);
+        }
+    }
+
+    final void addContact(SpatialGrid grid, int s, int o) {
+        int a = grid.cellEntities[s];
+        int b = grid.cellEntities[o];
+        if (contactCount == contacts.length) contacts = Arrays.copyOf(contacts, contactCount * 2);
+        contacts[contactCount++] = a < b ? (long) a << 32 | b : (long) b << 32 | a;
+    }
+
+    static int first(long contact) {
+        return (int) (contact >>> 32);
+    }
+
+    static int second(long contact) {
+        return (int) contact;
+    }
+}
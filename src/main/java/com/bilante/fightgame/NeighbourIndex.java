@@ -0,0 +1,113 @@
+package com.bilante.fightgame;
+
+import java.util.Arrays;
+
+/**
+ * "Who is around me" for the {@link Strategy} of every player: the k nearest enemies, or the enemies within a
+ * radius. Served by one uniform grid of the positions, rebuilt once per tick before the strategies run and shared
+ * by all of them, so a query only looks at the cells around the player and the whole tick stays close to linear
+ * in the number of players. Enemies are every other entity alive. Results go to {@link #found}, valid until the
+ * next query: nothing is allocated per query.
+ */
+public class NeighbourIndex {
+    private static final int PER_CELL = 2; // players per cell the grid is sized for
+
+    final SpatialGrid grid;
+    private WorldState world;
+    int[] found = new int[16]; // ids of the last query
+    private double[] foundDistance = new double[16]; // squared, of the last nearest() query
+
+    /** an index for `entities` players in a `width` x `height` arena **/
+    public NeighbourIndex(double width, double height, int entities) {
+        double cellSize = Math.max(CONST.PLAYER_RADIUS * 2, Math.sqrt(width * height * PER_CELL / Math.max(1, entities)));
+        grid = new SpatialGrid(width, height, cellSize);
+    }
+
+    /** buckets the positions of `world`, once per tick before any query **/
+    void rebuild(WorldState world) {
+        this.world = world;
+        grid.build(world.x, world.y, world.size);
+    }
+
+    /** @return the id of the `i`th result of the last query, nearest first for {@link #nearest} **/
+    public int found(int i) {
+        return found[i];
+    }
+
+    /** @return how many of the `k` nearest enemies of `self` there are, in {@link #found} nearest first **/
+    public int nearest(int self, int k) {
+        if (k <= 0) return 0;
+        if (found.length < k) {
+            found = new int[k];
+            foundDistance = new double[k];
+        }
+        double x = world.x[self];
+        double y = world.y[self];
+        int column = grid.column(x);
+        int row = grid.row(y);
+        int count = 0;
+        int rings = Math.max(grid.columns, grid.rows);
+        for (int ring = 0; ring < rings; ring++) {
+            // the cells of this ring and further are at least ring - 1 cells away from any point of ours
+            double reach = (ring - 1) * grid.cellSize;
+            if (ring > 0 && count == k && foundDistance[k - 1] < reach * reach) break;
+            int top = row - ring;
+            int bottom = row + ring;
+            for (int r = Math.max(0, top); r <= Math.min(grid.rows - 1, bottom); r++) {
+                boolean edge = r == top || r == bottom;
+                int step = edge ? 1 : 2 * ring; // inner rows only have the two side cells of the ring
+                for (int c = column - ring; c <= column + ring; c += Math.max(1, step)) {
+                    if (c < 0 || c >= grid.columns) continue;
+                    count = nearestIn(r * grid.columns + c, self, x, y, k, count);
+                }
+            }
+        }
+        return count;
+    }
+
+    /** adds the enemies of `cell` closer than the current kth to the results, @return the new count **/
+    private int nearestIn(int cell, int self, double x, double y, int k, int count) {
+        for (int s = grid.cellStart[cell]; s < grid.cellStart[cell + 1]; s++) {
+            int other = grid.cellEntities[s];
+            if (other == self || world.dead[other]) continue;
+            double dx = world.x[other] - x;
+            double dy = world.y[other] - y;
+            double distance = dx * dx + dy * dy;
+            if (count == k && distance >= foundDistance[k - 1]) continue;
+            int slot = count < k ? count++ : k - 1;
+            while (slot > 0 && (foundDistance[slot - 1] > distance
+                    || foundDistance[slot - 1] == distance && found[slot - 1] > other)) {
+                found[slot] = found[slot - 1];
+                foundDistance[slot] = foundDistance[slot - 1];
+                slot--;
+            }
+            found[slot] = other;
+            foundDistance[slot] = distance;
+        }
+        return count;
+    }
+
+    /** @return how many enemies have their center within `radius` of the center of `self`, ids in {@link #found} **/
+    public int within(int self, double radius) {
+        double x = world.x[self];
+        double y = world.y[self];
+        int fromColumn = grid.column(x - radius);
+        int toColumn = grid.column(x + radius);
+        int fromRow = grid.row(y - radius);
+        int toRow = grid.row(y + radius);
+        double radiusSquared = radius * radius;
+        int count = 0;
+        for (int r = fromRow; r <= toRow; r++) {
+            for (int s = grid.cellStart[r * grid.columns + fromColumn]; s < grid.cellStart[r * grid.columns + toColumn + 1]; s++) {
+                int other = grid.cellEntities[s];
+                if (other == self || world.dead[other]) continue;
+                double dx = world.x[other] - x;
+                double dy = world.y[other] - y;
+                if (dx * dx + dy * dy > radiusSquared) continue;
+                if (count == found.length) found = Arrays.copyOf(found, count * 2);
+                found[count++] = other;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,38 @@
+package com.bilante.fightgame;
+
+import javafx.scene.layout.Pane;
+import javafx.scene.shape.Circle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** one scene graph Circle per player, moved every pulse **/
+public class NodeRenderer implements ArenaRenderer {
+    private final List<Circle> playerBalls = new ArrayList<>();
+    private Pane arena;
+
+    @Override
+    public void start(Pane arena, double width, double height, int players) {
+        this.arena = arena;
+        for (int i = 0; i < players; i++) {
+            Circle playerBall = new Circle(CONST.PLAYER_RADIUS, UICONST.color(i));
+            playerBalls.add(playerBall);
+            arena.getChildren().add(playerBall);
+        }
+    }
+
+    @Override
+    public void render(WorldSnapshot snapshot, double alpha) {
+        for (int i = 0; i < snapshot.size && i < playerBalls.size(); i++) {
+            Circle playerBall = playerBalls.get(i);
+            playerBall.setCenterX(snapshot.x(i, alpha));
+            playerBall.setCenterY(snapshot.y(i, alpha));
+        }
+    }
+
+    @Override
+    public void stop() {
+        arena.getChildren().removeAll(playerBalls);
+        playerBalls.clear();
+    }
+}
@@ -0,0 +1,81 @@
+package com.bilante.fightgame;
+
+/**
+ * Set of entity pairs, each stored as (low id << 32 | high id) in an open addressing table of longs with linear
+ * probing, so adding and removing a pair allocates nothing. 0 (a pair of entity 0 with itself) marks a free slot. The
+ * table doubles when half full; removals shift the rest of a probe run back instead of leaving tombstones.
+ */
+class PairSet {
+    private long[] slots;
+    private int mask;
+    private int size = 0;
+
+    PairSet() {
+        slots = new long[16];
+        mask = slots.length - 1;
+    }
+
+    /** @return the key of `i` and `j`, in either order, two different entities **/
+    static long pair(int i, int j) {
+        return i < j ? (long) i << 32 | j : (long) j << 32 | i;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(long pair) {
+        for (int s = home(pair); slots[s] != 0; s = (s + 1) & mask) {
+            if (slots[s] == pair) return true;
+        }
+        return false;
+    }
+
+    /** @return true if `pair` was not in the set **/
+    boolean add(long pair) {
+        int s = home(pair);
+        for (; slots[s] != 0; s = (s + 1) & mask) {
+            if (slots[s] == pair) return false;
+        }
+        slots[s] = pair;
+        if (++size * 2 > slots.length) grow();
+        return true;
+    }
+
+    /** @return true if `pair` was in the set **/
+    boolean remove(long pair) {
+        int s = home(pair);
+        for (; slots[s] != pair; s = (s + 1) & mask) {
+            if (slots[s] == 0) return false;
+        }
+        // move back every later key of the run that may sit in the freed slot, its home not between the two
+        int free = s;
+        for (int next = (s + 1) & mask; slots[next] != 0; next = (next + 1) & mask) {
+            int h = home(slots[next]);
+            if (((next - h) & mask) >= ((next - free) & mask)) {
+                slots[free] = slots[next];
+                free = next;
+            }
+        }
+        slots[free] = 0;
+        size--;
+        return true;
+    }
+
+    private int home(long pair) {
+        long z = pair * 0x9e3779b97f4a7c15L;
+        return (int) (z ^ (z >>> 32)) & mask;
+    }
+
+    private void grow() {
+        long[] old = slots;
+        slots = new long[old.length * 2];
+        mask = slots.length - 1;
+        for (long pair : old) {
+            if (pair == 0) continue;
+            int s = home(pair);
+            while (slots[s] != 0) s = (s + 1) & mask;
+            slots[s] = pair;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.bilante.fightgame;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Performance overlay of the arena, toggled with F3: frame rate and render time on the FX thread, step time
+ * percentiles, pairs, entities and allocations of the simulation from the {@link TickStats} of its {@link GameBox},
+ * and the time the JVM spent collecting garbage. A stutter shows up in the column it comes from.
+ *
+ * Redrawn 4 times a second on one Canvas from sprites rendered once, the labels and the glyphs of the numbers, so a
+ * redraw allocates nothing. The arena only keeps its counters while the overlay is shown.
+ */
+public class PerfHud {
+    public static final String PROPERTY = "fightgame.hud"; // true to show it from the start
+    private static final long REDRAW_NANOS = 250_000_000;
+    private static final String GLYPHS = "0123456789.-";
+    private static final String[] LABELS = {
+            "frames/s", "render ms/frame", "tick p50 us", "tick p99 us", "pairs tested",
+            "pairs touching", "alive", "entities", "alloc B/tick", "GC ms/s"};
+    private static final double WIDTH = 210;
+    private static final double LINE_HEIGHT = 16;
+    private static final double PADDING = 6;
+
+    final Canvas canvas = new Canvas(WIDTH, LABELS.length * LINE_HEIGHT + 2 * PADDING);
+    private final GameBox gameBox;
+    private final WritableImage[] labels = new WritableImage[LABELS.length];
+    private final WritableImage glyphs;
+    private final double glyphWidth;
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private final long[] values = new long[LABELS.length];
+    private final AnimationTimer timer;
+    private TickStats stats;
+
+    // FX thread counters since the last redraw
+    private int frames = 0;
+    private long renderNanos = 0;
+    private long lastRedraw = -1;
+    private long lastCollectionMillis = 0;
+
+    /** call on the FX thread, the sprites are rendered here **/
+    public PerfHud(GameBox gameBox) {
+        this.gameBox = gameBox;
+        Font font = Font.font("Monospaced", 12);
+        SnapshotParameters parameters = new SnapshotParameters();
+        parameters.setFill(Color.TRANSPARENT);
+        for (int l = 0; l < LABELS.length; l++) {
+            labels[l] = sprite(LABELS[l], font, parameters);
+        }
+        Text text = new Text(GLYPHS);
+        text.setFont(font);
+        glyphWidth = text.getLayoutBounds().getWidth() / GLYPHS.length();
+        glyphs = sprite(GLYPHS, font, parameters);
+        canvas.setMouseTransparent(true);
+        canvas.setViewOrder(-1); // over whatever the renderer adds to the arena
+        canvas.setVisible(false);
+        timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                frames++;
+                if (lastRedraw == -1) {
+                    lastRedraw = now;
+                } else if (now - lastRedraw >= REDRAW_NANOS) {
+                    redraw(now);
+                }
+            }
+        };
+    }
+
+    private static WritableImage sprite(String string, Font font, SnapshotParameters parameters) {
+        Text text = new Text(string);
+        text.setFont(font);
+        text.setFill(Color.WHITE);
+        return text.snapshot(parameters, null);
+    }
+
+    public boolean isShown() {
+        return canvas.isVisible();
+    }
+
+    public void toggle() {
+        setShown(!isShown());
+    }
+
+    /** showing starts a new window of counters in the arena, hiding stops them **/
+    public void setShown(boolean shown) {
+        if (shown == isShown()) return;
+        canvas.setVisible(shown);
+        if (shown) {
+            stats = new TickStats();
+            gameBox.stats = stats;
+            frames = 0;
+            renderNanos = 0;
+            lastRedraw = -1;
+            lastCollectionMillis = collectionMillis();
+            timer.start();
+        } else {
+            timer.stop();
+            gameBox.stats = null;
+            stats = null;
+        }
+    }
+
+    /** FX side: one frame of the arena took `nanos` to draw **/
+    public void frameRendered(long nanos) {
+        renderNanos += nanos;
+    }
+
+    private long collectionMillis() {
+        long millis = 0;
+        for (int c = 0; c < collectors.size(); c++) {
+            millis += Math.max(0, collectors.get(c).getCollectionTime());
+        }
+        return millis;
+    }
+
+    private void redraw(long now) {
+        double seconds = (now - lastRedraw) / 1e9;
+        long collection = collectionMillis();
+        values[0] = Math.round(frames / seconds);
+        values[1] = frames == 0 ? -1 : renderNanos / frames / 10_000; // hundredths of a millisecond
+        values[2] = stats.percentile(0.5);
+        values[3] = stats.percentile(0.99);
+        boolean ticked = values[2] != -1;
+        values[4] = ticked ? stats.candidatePairs : -1;
+        values[5] = ticked ? stats.contactPairs : -1;
+        values[6] = ticked ? stats.alive : -1;
+        values[7] = ticked ? stats.entities : -1;
+        values[8] = stats.allocatedPerTick();
+        values[9] = Math.round((collection - lastCollectionMillis) / seconds);
+        frames = 0;
+        renderNanos = 0;
+        lastRedraw = now;
+        lastCollectionMillis = collection;
+
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        gc.setFill(Color.rgb(0, 0, 0, 0.6));
+        gc.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        for (int l = 0; l < LABELS.length; l++) {
+            double y = PADDING + l * LINE_HEIGHT;
+            gc.drawImage(labels[l], PADDING, y);
+            drawNumber(gc, values[l], l == 1 ? 2 : 0, WIDTH - PADDING, y);
+        }
+    }
+
+    /** draws `value` with `decimals` of its digits after the point, right aligned on `right`; "-" if negative **/
+    private void drawNumber(GraphicsContext gc, long value, int decimals, double right, double y) {
+        double x = right;
+        if (value < 0) {
+            drawGlyph(gc, 11, x - glyphWidth, y);
+            return;
+        }
+        int digits = 0;
+        do {
+            if (digits == decimals && decimals > 0) {
+                x -= glyphWidth;
+                drawGlyph(gc, 10, x, y);
+            }
+            x -= glyphWidth;
+            drawGlyph(gc, (int) (value % 10), x, y);
+            value /= 10;
+            digits++;
+        } while (value > 0 || digits <= decimals);
+    }
+
+    private void drawGlyph(GraphicsContext gc, int glyph, double x, double y) {
+        gc.drawImage(glyphs, glyph * glyphWidth, 0, glyphWidth, glyphs.getHeight(), x, y, glyphWidth, glyphs.getHeight());
+    }
+}
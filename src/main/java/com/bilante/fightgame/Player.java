@@ -1,11 +1,5 @@
 package com.bilante.fightgame;
 
-
-import javafx.beans.property.SimpleBooleanProperty;
-import javafx.beans.property.SimpleDoubleProperty;
-
-import java.sql.Timestamp;
-
 public class Player {
     String name;
     double healthPoints;
@@ -13,8 +7,9 @@ public class Player {
     final int speed;
     Position current;
     Position target;
-    Timestamp lastHit = new Timestamp(System.currentTimeMillis());
+    long lastHit = 0; // tick of the last collision, 0 before the first one
     boolean dead = false;
+    int id; // index in the GameBox world arrays
 
     public Player(String name, double healthPoints, double damage, int speed,  Position current, Position target) {
         this.name = name;
@@ -0,0 +1,175 @@
+package com.bilante.fightgame;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Plays back a file written by {@link ReplayRecorder} into a {@link GameBox}, without running the engine.
+ * Seeking loads the closest keyframe before the tick and applies the deltas up to it.
+ */
+public class ReplayReader {
+    final int entities;
+    final double width;
+    final double height;
+    final double step;
+    final long seed;
+    final long frames;
+    final double[] maxHealth;
+    final int[] speed;
+    final String[] names;
+    final long firstTick;
+    final long lastTick;
+
+    private final MappedByteBuffer buffer;
+    private final int[] keyframes; // offsets
+    private final long[] keyframeTicks;
+    private long tick = -1; // tick loaded last, -1 before the first load
+
+    // player hits of the tick loaded last
+    int hitCount = 0;
+    int[] hitA;
+    int[] hitB;
+
+    public ReplayReader(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Replay files over 2 GB are not supported: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.getInt() != ReplayRecorder.MAGIC) { throw new IOException("Not a replay file: " + file); }
+        int version = buffer.getInt();
+        if (version != ReplayRecorder.VERSION) { throw new IOException("Unsupported replay version " + version); }
+        entities = buffer.getInt();
+        buffer.getInt(); // keyframe interval, the index gives the keyframes
+        width = buffer.getDouble();
+        height = buffer.getDouble();
+        step = buffer.getDouble();
+        seed = buffer.getLong();
+        frames = buffer.getLong();
+        long indexOffset = buffer.getLong();
+        if (frames == 0) { throw new IOException("Replay was not closed properly: " + file); }
+
+        maxHealth = new double[entities];
+        speed = new int[entities];
+        names = new String[entities];
+        for (int i = 0; i < entities; i++) {
+            maxHealth[i] = buffer.getFloat();
+            speed[i] = buffer.getInt();
+            byte[] name = new byte[buffer.getShort()];
+            buffer.get(name);
+            names[i] = new String(name, StandardCharsets.UTF_8);
+        }
+
+        buffer.position((int) indexOffset);
+        int keyframeCount = buffer.getInt();
+        keyframes = new int[keyframeCount];
+        keyframeTicks = new long[keyframeCount];
+        for (int k = 0; k < keyframeCount; k++) {
+            keyframes[k] = (int) buffer.getLong();
+            keyframeTicks[k] = buffer.getInt(keyframes[k]);
+        }
+        firstTick = keyframeTicks[0];
+        lastTick = firstTick + frames - 1;
+        hitA = new int[16];
+        hitB = new int[16];
+    }
+
+    /** @return an arena holding the recorded players, ready for {@link #seek} **/
+    public GameBox createGameBox() {
+        GameBox gameBox = new GameBox(width, height, seed);
+        for (int i = 0; i < entities; i++) {
+            gameBox.addPlayer(names[i], maxHealth[i], 0, speed[i]); // the speed walks the players between frames
+        }
+        seek(firstTick, gameBox);
+        return gameBox;
+    }
+
+    public long tick() {
+        return tick;
+    }
+
+    /** loads the state of `target` (clamped to the recording) into `gameBox` **/
+    public void seek(long target, GameBox gameBox) {
+        target = Math.max(firstTick, Math.min(lastTick, target));
+        if (target < tick || tick == -1 || keyframeAfter(tick) <= target) {
+            // jump to the last keyframe at or before the target, otherwise keep reading forward
+            int low = 0;
+            int high = keyframes.length - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (keyframeTicks[mid] <= target) low = mid; else high = mid - 1;
+            }
+            buffer.position(keyframes[low]);
+            readFrame(gameBox.world);
+        }
+        while (tick < target) {
+            readFrame(gameBox.world);
+        }
+        gameBox.mirrorToPlayers();
+    }
+
+    /** @return false once the last tick is loaded **/
+    public boolean next(GameBox gameBox) {
+        if (tick >= lastTick) return false;
+        readFrame(gameBox.world);
+        gameBox.mirrorToPlayers();
+        return true;
+    }
+
+    private long keyframeAfter(long current) {
+        for (long keyframeTick : keyframeTicks) {
+            if (keyframeTick > current) return keyframeTick;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    private void readFrame(WorldState world) {
+        tick = buffer.getInt();
+        byte type = buffer.get();
+        if (type == ReplayRecorder.KEYFRAME) {
+            for (int i = 0; i < entities; i++) {
+                world.x[i] = buffer.getFloat();
+                world.y[i] = buffer.getFloat();
+                world.targetX[i] = buffer.getFloat();
+                world.targetY[i] = buffer.getFloat();
+                world.health[i] = buffer.getFloat();
+                world.dead[i] = buffer.get() != 0;
+            }
+        } else {
+            for (int i = 0; i < entities; i++) {
+                ReplayRecorder.walk(world, i, step);
+            }
+            int moved = buffer.getInt();
+            for (int m = 0; m < moved; m++) {
+                int id = buffer.getInt();
+                world.x[id] = buffer.getFloat();
+                world.y[id] = buffer.getFloat();
+                world.targetX[id] = buffer.getFloat();
+                world.targetY[id] = buffer.getFloat();
+            }
+            int healths = buffer.getInt();
+            for (int h = 0; h < healths; h++) {
+                int id = buffer.getInt();
+                world.health[id] = buffer.getFloat();
+                world.dead[id] = world.health[id] <= 0;
+            }
+        }
+        hitCount = buffer.getInt();
+        if (hitA.length < hitCount) {
+            hitA = new int[Math.max(hitCount, hitA.length * 2)];
+            hitB = new int[hitA.length];
+        }
+        for (int h = 0; h < hitCount; h++) {
+            hitA[h] = buffer.getInt();
+            hitB[h] = buffer.getInt();
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.bilante.fightgame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Records every tick of a match into a binary file written through memory-mapped regions of a FileChannel.
+ * A keyframe holds the full state every {@link #KEYFRAME_INTERVAL} ticks, the ticks in between only hold the
+ * players that did not just walk on towards their target, the HP that changed and the hits. The reader moves the
+ * other players one step towards their target like the engine does ({@link #walk}); the recorder walks a copy of
+ * what the reader holds the same way and writes a player again as soon as it turns, stops, or strays more than
+ * {@value #POSITION_TOLERANCE} px from it. Values are written straight from the world arrays, a tick serializes no
+ * object.
+ *
+ * <pre>
+ * header   int magic, int version, int entities, int keyframe interval,
+ *          double width, double height, double step, long seed, long frames, long index offset
+ * entities float max health, int speed, short name length, name bytes (UTF-8)
+ * frame    int tick, byte type (0 key, 1 delta)
+ *          key:   per entity float x, y, target x, target y, health, byte dead
+ *          delta: int count, count * (int id, float x, float y, float target x, float target y)
+ *                 int count, count * (int id, float health)
+ *          both:  int count, count * (int id, int other id) contact pairs that dealt damage in the tick
+ * index    int keyframes, keyframes * long offset of the keyframe
+ * </pre>
+ * Everything is little endian.
+ */
+public class ReplayRecorder implements GameListener, Closeable {
+    public static final String PROPERTY = "fightgame.record"; // directory the UI records its matches to
+    static final int MAGIC = 0x50524746; // "FGRP" read as little endian bytes
+    static final int VERSION = 2; // 2: speeds, positions only for the players that did not walk on, every contact pair
+    static final int KEYFRAME_INTERVAL = 60;
+    static final int HEADER_SIZE = 64;
+    static final int FRAMES_OFFSET = 48;
+    static final byte KEYFRAME = 0;
+    static final byte DELTA = 1;
+    static final double POSITION_TOLERANCE = 1e-3; // px a replayed player may be off the recorded one
+    private static final int CHUNK = 1 << 20; // bytes mapped at a time
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private MappedByteBuffer buffer;
+    private long base; // file offset of `buffer`
+
+    private final int entities;
+    private final double step;
+    private final WorldState replayed; // positions and targets as the reader has them
+    private final float[] recordedHealth;
+    private long[] keyframes = new long[64];
+    private int keyframeCount = 0;
+    private long frames = 0;
+    private long lastTick = -1;
+
+    /**
+     * opens `file` and writes the header and the starting keyframe of `gameBox`, whose players are placed
+     * @param step simulated seconds per tick, for the playback speed
+     */
+    public ReplayRecorder(Path file, GameBox gameBox, double step) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        WorldState world = gameBox.world;
+        entities = world.size;
+        this.step = step;
+        header.putInt(MAGIC).putInt(VERSION).putInt(entities).putInt(KEYFRAME_INTERVAL)
+                .putDouble(gameBox.width).putDouble(gameBox.height).putDouble(step).putLong(gameBox.seed)
+                .putLong(0).putLong(0);
+
+        base = HEADER_SIZE;
+        buffer = map(base, CHUNK);
+        for (int i = 0; i < entities; i++) {
+            byte[] name = gameBox.players.get(i).name == null ? new byte[0] : gameBox.players.get(i).name.getBytes(StandardCharsets.UTF_8);
+            ensure(10 + name.length);
+            buffer.putFloat((float) world.health[i]).putInt(world.speed[i]).putShort((short) name.length).put(name);
+        }
+
+        replayed = new WorldState(entities);
+        for (int i = 0; i < entities; i++) {
+            replayed.add(0, 0, 0, 0, 0, 0, world.speed[i], 0);
+        }
+        recordedHealth = new float[entities];
+        writeKeyframe(gameBox, false); // the contacts are not from this match yet
+        frames = 1;
+    }
+
+    private MappedByteBuffer map(long position, int size) throws IOException {
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        return mapped;
+    }
+
+    /** makes room for `bytes` more bytes, mapping the next region of the file if needed **/
+    private void ensure(int bytes) {
+        if (buffer.remaining() >= bytes) return;
+        try {
+            base += buffer.position();
+            buffer = map(base, Math.max(CHUNK, bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int maxFrameSize(int contactPairs) {
+        // key frame, or delta frame with every player and HP written, plus every contact pair
+        return 5 + entities * Math.max(21, 4 + 20 + 8) + 12 + contactPairs * 8;
+    }
+
+    /** moves entity `i` of `world` one step of `step` seconds towards its target, as the engine moves a player **/
+    static void walk(WorldState world, int i, double step) {
+        double leadX = world.targetX[i] - world.x[i];
+        double leadY = world.targetY[i] - world.y[i];
+        double distance = Math.sqrt(leadX * leadX + leadY * leadY);
+        if (distance == 0) return;
+        double ratio = Math.min(world.speed[i] * step / distance, 1.0);
+        world.x[i] += leadX * ratio;
+        world.y[i] += leadY * ratio;
+    }
+
+    @Override
+    public void onTick(GameBox gameBox) {
+        if (gameBox.ticks == lastTick) return;
+        if (gameBox.ticks % KEYFRAME_INTERVAL == 0) {
+            writeKeyframe(gameBox, true);
+        } else {
+            writeDelta(gameBox);
+        }
+        frames++;
+    }
+
+    private void writeKeyframe(GameBox gameBox, boolean withHits) {
+        WorldState world = gameBox.world;
+        ensure(maxFrameSize(withHits ? gameBox.contactPairs : 0));
+        if (keyframeCount == keyframes.length) keyframes = Arrays.copyOf(keyframes, keyframeCount * 2);
+        keyframes[keyframeCount++] = base + buffer.position();
+        lastTick = gameBox.ticks;
+
+        buffer.putInt((int) gameBox.ticks).put(KEYFRAME);
+        for (int i = 0; i < entities; i++) {
+            recordedHealth[i] = (float) world.health[i];
+            replay(world, i);
+            buffer.putFloat((float) replayed.x[i]).putFloat((float) replayed.y[i])
+                    .putFloat((float) replayed.targetX[i]).putFloat((float) replayed.targetY[i])
+                    .putFloat(recordedHealth[i]).put((byte) (world.dead[i] ? 1 : 0));
+        }
+        if (withHits) {
+            writeHits(gameBox);
+        } else {
+            buffer.putInt(0);
+        }
+    }
+
+    /** copies entity `i` of `world` into `replayed` as the reader gets it **/
+    private void replay(WorldState world, int i) {
+        replayed.x[i] = (float) world.x[i];
+        replayed.y[i] = (float) world.y[i];
+        replayed.targetX[i] = (float) world.targetX[i];
+        replayed.targetY[i] = (float) world.targetY[i];
+    }
+
+    private void writeDelta(GameBox gameBox) {
+        WorldState world = gameBox.world;
+        ensure(maxFrameSize(gameBox.contactPairs));
+        lastTick = gameBox.ticks;
+
+        buffer.putInt((int) gameBox.ticks).put(DELTA);
+        int countPosition = buffer.position();
+        int count = 0;
+        buffer.putInt(0);
+        for (int i = 0; i < entities; i++) {
+            walk(replayed, i, step);
+            if ((float) world.targetX[i] != replayed.targetX[i] || (float) world.targetY[i] != replayed.targetY[i]
+                    || Math.abs(world.x[i] - replayed.x[i]) > POSITION_TOLERANCE
+                    || Math.abs(world.y[i] - replayed.y[i]) > POSITION_TOLERANCE) {
+                replay(world, i);
+                buffer.putInt(i).putFloat((float) replayed.x[i]).putFloat((float) replayed.y[i])
+                        .putFloat((float) replayed.targetX[i]).putFloat((float) replayed.targetY[i]);
+                count++;
+            }
+        }
+        buffer.putInt(countPosition, count);
+
+        countPosition = buffer.position();
+        count = 0;
+        buffer.putInt(0);
+        for (int i = 0; i < entities; i++) {
+            float health = (float) world.health[i];
+            if (health != recordedHealth[i]) {
+                recordedHealth[i] = health;
+                buffer.putInt(i).putFloat(health);
+                count++;
+            }
+        }
+        buffer.putInt(countPosition, count);
+        writeHits(gameBox);
+    }
+
+    /** the contact pairs the engine resolved damage for, a player in a pile up is in several **/
+    private void writeHits(GameBox gameBox) {
+        int countPosition = buffer.position();
+        int count = 0;
+        buffer.putInt(0);
+        long[] contacts = gameBox.narrowPhase.contacts;
+        for (int p = 0; p < gameBox.contactPairs; p++) {
+            if (!gameBox.counts(p)) continue;
+            buffer.putInt(NarrowPhase.first(contacts[p])).putInt(NarrowPhase.second(contacts[p]));
+            count++;
+        }
+        buffer.putInt(countPosition, count);
+    }
+
+    /** writes the keyframe index, patches the header and cuts the file to its content **/
+    @Override
+    public void close() throws IOException {
+        ensure(4 + keyframeCount * 8);
+        long indexOffset = base + buffer.position();
+        buffer.putInt(keyframeCount);
+        for (int k = 0; k < keyframeCount; k++) {
+            buffer.putLong(keyframes[k]);
+        }
+        long size = base + buffer.position();
+        // no force(): the page cache writes the file back, waiting on the disk here would stall the caller
+        header.putLong(FRAMES_OFFSET, frames).putLong(FRAMES_OFFSET + 8, indexOffset);
+        try {
+            channel.truncate(size);
+        } catch (IOException ignored) {
+            // some platforms refuse to truncate a mapped file, the reader only trusts the header anyway
+        }
+        channel.close();
+    }
+}
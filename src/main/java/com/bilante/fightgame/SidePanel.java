@@ -1,8 +1,5 @@
 package com.bilante.fightgame;
 
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
-
 import java.util.ArrayList;
 import java.util.List;
 
@@ -11,12 +8,11 @@ public class SidePanel {
     int nbPlayers = 0;
     List<PlayerInput> playerInputs;
     List<PlayerInfoDisplay> displays;
-    List<SidePanelController.PlayerDisplaySet> playerDisplaySets;
+    Leaderboard leaderboard; // live HP ranking while a match runs, null otherwise
 
     public SidePanel() {
         playerInputs = new ArrayList<>();
         displays = new ArrayList<>();
-        playerDisplaySets = new ArrayList<>();
     }
 
     public boolean addInputField() {
@@ -36,6 +32,7 @@ public class SidePanel {
             int speedPoints;
             int healthPoints;
             String name;
+            String strategy; // name of its Strategy, null to wander
 
             public PlayerInput() {
                 sharedPoints -= 2;
@@ -57,6 +54,7 @@ public class SidePanel {
         public void setSpeedPoints(int speedPoints) { this.sharedPoints -= speedPoints ;this.speedPoints = speedPoints;}
         public void setHealthPoints(int healthPoints) {this.sharedPoints -= healthPoints;this.healthPoints = healthPoints;}
         public void setName(String name) {this.name = name;}
+        public void setStrategy(String strategy) {this.strategy = strategy;}
     }
 
 
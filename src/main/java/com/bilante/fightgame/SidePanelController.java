@@ -1,18 +1,14 @@
 package com.bilante.fightgame;
 
-import javafx.animation.*;
+import javafx.application.Platform;
 import javafx.collections.ListChangeListener;
 import javafx.fxml.FXML;
 import javafx.geometry.Insets;
-import javafx.geometry.Pos;
 import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.layout.HBox;
-import javafx.scene.layout.StackPane;
+import javafx.scene.layout.Region;
 import javafx.scene.layout.VBox;
-import javafx.scene.paint.Color;
-import javafx.scene.shape.Rectangle;
-import javafx.util.Duration;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -29,28 +25,70 @@ public class SidePanelController {
     @FXML
     private Button startButton;
 
-    AnimationTimer displayLoop;
+    @FXML
+    private Button predictButton;
+
+    private static final int PREDICTION_ROUNDS = 200; // matches played per prediction
 
     private GameData gameData;
     private List<PlayerFieldSet> playerFieldSets = new ArrayList<>();
 
+    /** builds what sidePanel-view.fxml describes, without the loader **/
+    Region buildView() {
+        playerTemplatesContainer = new VBox(10);
+        ScrollPane playerScrollPane = new ScrollPane(playerTemplatesContainer);
+        playerScrollPane.setFitToWidth(true);
+        playerScrollPane.setHbarPolicy(ScrollPane.ScrollBarPolicy.NEVER);
+        playerScrollPane.setVbarPolicy(ScrollPane.ScrollBarPolicy.AS_NEEDED);
+        playerScrollPane.setPrefHeight(400);
+
+        Button removePlayer = new Button("Remove Player");
+        removePlayer.setOnAction(event -> onRemovePlayer());
+        Button addPlayer = new Button("Add Player");
+        addPlayer.setOnAction(event -> onAddPlayer());
+        for (Button button : List.of(removePlayer, addPlayer)) {
+            button.setPrefSize(100, 25);
+            button.setPadding(new Insets(5));
+        }
+        removeAddPlayer = new HBox(10, removePlayer, addPlayer);
+        removeAddPlayer.setPrefSize(230, 30);
+
+        startButton = new Button("START GAME");
+        startButton.setPrefSize(120, 30);
+        startButton.setOnAction(event -> onValidate());
+        predictButton = new Button("Predict winner");
+        predictButton.setPrefSize(120, 25);
+        predictButton.setOnAction(event -> onPredict());
+
+        VBox mainContainer = new VBox(10, playerScrollPane, removeAddPlayer, startButton, predictButton);
+        mainContainer.setPadding(new Insets(10));
+        mainContainer.setPrefSize(240, 500);
+        mainContainer.setMinSize(Region.USE_PREF_SIZE, Region.USE_PREF_SIZE); // -Infinity in the FXML
+        mainContainer.setMaxSize(Region.USE_PREF_SIZE, Region.USE_PREF_SIZE);
+        return mainContainer;
+    }
+
     public void setModel(GameData gameData) {
         this.gameData = gameData;
+        gameData.gameBox.addListener(new GameListener() {
+            @Override
+            public void onHealthChanged(int id, double oldHealth, double newHealth) {
+                // called on the simulation thread, the leaderboard hands the change over to the FX thread
+                Leaderboard leaderboard = gameData.sidePanel.leaderboard;
+                if (leaderboard != null && id < leaderboard.names.length) leaderboard.report(id, newHealth);
+            }
+        });
 
         gameData.dataReady.addListener((observable, oldValue, newValue) -> {
             if (!newValue && oldValue) {
-                if (displayLoop != null) {
-                    displayLoop.stop();
-                    displayLoop = null;
-                }
-
                 removeAddPlayer.setDisable(false);
                 removeAddPlayer.setVisible(true);
                 startButton.setDisable(false);
                 startButton.setVisible(true);
+                predictButton.setVisible(true);
 
                 playerTemplatesContainer.getChildren().clear();
-                gameData.sidePanel.playerDisplaySets.clear();
+                gameData.sidePanel.leaderboard = null;
                 playerFieldSets.clear();
 
                 List<SidePanel.PlayerInput> inputs = gameData.sidePanel.playerInputs;
@@ -101,7 +139,6 @@ public class SidePanelController {
     @FXML
     private void onValidate() {
         gameData.sidePanel.displays.clear();
-        gameData.sidePanel.playerDisplaySets.clear();
         playerTemplatesContainer.getChildren().clear();
 
         for (int i = 0; i < playerFieldSets.size(); i++) {
@@ -117,38 +154,55 @@ public class SidePanelController {
         removeAddPlayer.setDisable(true);
         startButton.setDisable(true);
         startButton.setVisible(false);
+        predictButton.setVisible(false);
         removeAddPlayer.setVisible(false);
         inflateLiveDisplay();
 
         gameData.dataReady.set(true);
     }
 
-    private void inflateLiveDisplay() {
-        playerTemplatesContainer.getChildren().clear();
-        gameData.sidePanel.playerDisplaySets.clear();
-
-        for (SidePanel.PlayerInfoDisplay info : gameData.sidePanel.displays) {
-            PlayerDisplaySet display = new PlayerDisplaySet(info.name, info.speed, info.damage, info.health, gameData.sidePanel.displays.indexOf(info));
-            gameData.sidePanel.playerDisplaySets.add(display);
-            playerTemplatesContainer.getChildren().add(display.container);
+    /** plays the current roster headless, through the shared {@link MatchCache}, and shows who wins how often **/
+    @FXML
+    private void onPredict() {
+        List<SidePanel.PlayerInput> inputs = new ArrayList<>();
+        for (PlayerFieldSet fieldSet : playerFieldSets) {
+            SidePanel.PlayerInput input = new SidePanel.PlayerInput(
+                    fieldSet.damageSpinner.getValue(), fieldSet.speedSpinner.getValue(), fieldSet.healthSpinner.getValue());
+            input.setName(fieldSet.nameField.getText());
+            inputs.add(input);
         }
-        startLoopDisplay();
+        predictButton.setDisable(true);
+        Thread prediction = new Thread(() -> {
+            double[] shares = MatchCache.shared().winShares(inputs, PREDICTION_ROUNDS);
+            Platform.runLater(() -> {
+                predictButton.setDisable(false);
+                StringBuilder text = new StringBuilder();
+                for (int i = 0; i < shares.length; i++) {
+                    text.append(inputs.get(i).name).append(": ").append(Math.round(shares[i] * 100)).append("% of wins\n");
+                }
+                Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                alert.setTitle("Prediction");
+                alert.setHeaderText(PREDICTION_ROUNDS + " simulated matches");
+                alert.setContentText(text.toString());
+                alert.show();
+            });
+        }, "fightgame-prediction");
+        prediction.setDaemon(true);
+        prediction.start();
+    }
 
+    /** replaces the player forms with the leaderboard of the match **/
+    private void inflateLiveDisplay() {
+        playerTemplatesContainer.getChildren().clear();
+        showLeaderboard(Leaderboard.of(gameData.sidePanel.displays));
     }
 
-    public void startLoopDisplay () {
-        displayLoop = new AnimationTimer() {
-            @Override
-            public void handle(long now) {
-                for (int i = 0; i < gameData.sidePanel.playerDisplaySets.size(); i++) {
-                    PlayerDisplaySet display = gameData.sidePanel.playerDisplaySets.get(i);
-                    if(gameData.gameBox.players.get(i).healthPoints > 0) {
-                        display.updateHealthBar(gameData.gameBox.players.get(i).healthPoints, gameData.sidePanel.playerInputs.get(i).healthPoints);
-                    }
-                }
-            }
-        };
-        displayLoop.start();
+    /** shows `leaderboard` in place of the player forms, for a match played here or watched from a server **/
+    void showLeaderboard(Leaderboard leaderboard) {
+        playerTemplatesContainer.getChildren().clear();
+        leaderboard.view.setPrefHeight(380);
+        gameData.sidePanel.leaderboard = leaderboard;
+        playerTemplatesContainer.getChildren().add(leaderboard.view);
     }
 
     private void addPlayerField() {
@@ -287,64 +341,4 @@ public class SidePanelController {
             });
         }
     }
-
-    /** UI display for live game info **/
-    static class PlayerDisplaySet {
-        final VBox container;
-        final Rectangle healthBarBackground;
-        final Rectangle healthBarForeground;
-        final Label nameLabel;
-        final Label speedLabel;
-        final Label damageLabel;
-
-        private final double MAX_BAR_WIDTH = 200;
-        private final double BAR_HEIGHT = 20;
-
-        public PlayerDisplaySet(String name, int speed, double damage, double health, int index) {
-            healthBarBackground = new Rectangle(MAX_BAR_WIDTH, BAR_HEIGHT);
-            healthBarBackground.setFill(Color.LIGHTGRAY);
-            healthBarBackground.setArcWidth(10);
-            healthBarBackground.setArcHeight(10);
-
-            healthBarForeground = new Rectangle(MAX_BAR_WIDTH, BAR_HEIGHT);
-            healthBarForeground.setFill(CONST.colors[index]);
-            healthBarForeground.setArcWidth(10);
-            healthBarForeground.setArcHeight(10);
-            updateHealthBar(health, health);
-
-            StackPane healthBarStack = new StackPane(healthBarBackground, healthBarForeground);
-            healthBarStack.setAlignment(Pos.CENTER_LEFT);
-            healthBarStack.setMaxWidth(MAX_BAR_WIDTH);
-
-            nameLabel = new Label(name);
-            speedLabel = new Label(""+speed+" px/s");
-            damageLabel = new Label("" + damage + " dmg/h");
-
-            HBox infoBox = new HBox(10, nameLabel, speedLabel, damageLabel);
-            infoBox.setAlignment(Pos.CENTER_LEFT);
-
-            container = new VBox(5, healthBarStack, infoBox);
-            container.setPadding(new Insets(10));
-            container.setStyle("-fx-border-color: black; -fx-border-radius: 5; -fx-background-color: #f4f4f4;");
-
-        }
-
-        public void updateHealthBar(double currentHealth, double maxHealth) {
-            double ratio = Math.max(0, Math.min(1.0, currentHealth / maxHealth));
-            double targetWidth;
-
-            if (currentHealth <= 0) { // avoid border effect
-                targetWidth = 1;
-            } else {
-                targetWidth = ratio * MAX_BAR_WIDTH;
-            }
-            Timeline timeline = new Timeline(
-                    new KeyFrame(Duration.millis(300),
-                            new KeyValue(healthBarForeground.widthProperty(), targetWidth, Interpolator.EASE_BOTH)
-                    )
-            );
-            timeline.play();
-        }
-
-    }
 }
@@ -0,0 +1,90 @@
+package com.bilante.fightgame;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Steps a {@link GameBox} on its own thread at a fixed rate, whatever the display does, and hands the result of
+ * each tick to the renderer through a lock-free {@link SnapshotBuffer}: neither side ever waits on the other.
+ *
+ * The listeners of the arena are called on the simulation thread.
+ */
+public class SimulationLoop {
+    public static final String PROPERTY = "fightgame.tickRate"; // ticks per simulated second
+    private static final int MAX_STEPS_PER_WAKE_UP = 5; // past that the wall clock backlog is dropped
+
+    final GameBox gameBox;
+    final double step;
+    final long periodNanos;
+    private final SnapshotBuffer snapshots = new SnapshotBuffer();
+    private volatile boolean running = false;
+    private Thread thread;
+
+    /** @param tickRate ticks per simulated second, also per wall clock second **/
+    public SimulationLoop(GameBox gameBox, double tickRate) {
+        if (tickRate <= 0) { throw new IllegalArgumentException("Tick rate must be positive: " + tickRate); }
+        this.gameBox = gameBox;
+        this.step = 1 / tickRate;
+        this.periodNanos = Math.round(1e9 / tickRate);
+        snapshots.front().captureStill(gameBox.world, gameBox.ticks); // the placed players, shown until the first tick
+    }
+
+    /** @return a loop at the {@value #PROPERTY} system property rate, 1 / {@link CONST#FIXED_STEP} by default **/
+    public static SimulationLoop fromSettings(GameBox gameBox) {
+        String rate = System.getProperty(PROPERTY);
+        return new SimulationLoop(gameBox, rate == null ? 1 / CONST.FIXED_STEP : Double.parseDouble(rate));
+    }
+
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "fightgame-simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** stops the thread and waits for it, the arena is the caller's again once this returns **/
+    public void stop() {
+        running = false;
+        if (thread == null) return;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    private void run() {
+        long next = System.nanoTime() + periodNanos;
+        while (running && !gameBox.isOver()) {
+            long now = System.nanoTime();
+            if (now < next) {
+                LockSupport.parkNanos(next - now);
+                continue;
+            }
+            WorldSnapshot back = snapshots.back();
+            int steps = 0;
+            while (next <= now && steps < MAX_STEPS_PER_WAKE_UP && !gameBox.isOver()) {
+                back.capturePrevious(gameBox.world);
+                gameBox.step(step);
+                back.capture(gameBox.world, gameBox.ticks);
+                next += periodNanos;
+                steps++;
+            }
+            snapshots.publish();
+            if (steps == MAX_STEPS_PER_WAKE_UP) {
+                next = System.nanoTime() + periodNanos; // too far behind (suspended, debugger...), don't catch up
+            }
+        }
+    }
+
+    /** renderer side: @return the newest snapshot published, valid until the next call **/
+    public WorldSnapshot latest() {
+        return snapshots.latest();
+    }
+
+    /** @return how far `snapshot` should be drawn from its previous positions to its own at `now` (nanoTime) **/
+    public double alpha(WorldSnapshot snapshot, long now) {
+        return Math.max(0, Math.min(1, (double) (now - snapshot.publishedAt) / periodNanos));
+    }
+}
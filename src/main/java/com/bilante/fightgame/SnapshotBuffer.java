@@ -0,0 +1,41 @@
+package com.bilante.fightgame;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free triple buffer of {@link WorldSnapshot}s between one producer thread and the renderer: the producer fills
+ * its back snapshot and swaps it with the shared one, the renderer swaps its front snapshot with the shared one when
+ * that holds a newer tick. Neither side ever waits on the other and a snapshot is never written while it is read.
+ */
+public class SnapshotBuffer {
+    private final AtomicReference<WorldSnapshot> shared = new AtomicReference<>(new WorldSnapshot());
+    private WorldSnapshot back = new WorldSnapshot(); // owned by the producer
+    private WorldSnapshot front = new WorldSnapshot(); // owned by the renderer
+    private volatile long publishedTick = -1; // tick of the last snapshot swapped in, the shared one is not read
+
+    /** producer side: @return the snapshot to fill for the next publish **/
+    WorldSnapshot back() {
+        return back;
+    }
+
+    /** producer side: hands the back snapshot over, stamped with the current time **/
+    void publish() {
+        back.publishedAt = System.nanoTime();
+        long tick = back.tick;
+        back = shared.getAndSet(back);
+        publishedTick = tick;
+    }
+
+    /** renderer side: @return the snapshot drawn until the first publish **/
+    WorldSnapshot front() {
+        return front;
+    }
+
+    /** renderer side: @return the newest snapshot published, valid until the next call **/
+    public WorldSnapshot latest() {
+        if (publishedTick > front.tick) {
+            front = shared.getAndSet(front);
+        }
+        return front;
+    }
+}
@@ -0,0 +1,111 @@
+package com.bilante.fightgame;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid broad phase over the arena. Cells are one player diameter wide by default, so two circles that
+ * overlap always sit in the same or in neighbouring cells; wider cells cover circles that move during the step. The grid is rebuilt every tick with a counting sort and
+ * only reallocates when the entity count or the arena grows.
+ *
+ * The entities are kept in cell order, row after row, so the neighbours a cell is paired with are two runs of
+ * slots: itself and its right neighbour, then the three cells below. {@link NarrowPhase} walks those runs.
+ */
+public class SpatialGrid {
+    final double cellSize;
+    int columns;
+    int rows;
+    /** entities of cell c are cellEntities[cellStart[c] .. cellStart[c + 1]) **/
+    int[] cellStart;
+    int[] cellEntities;
+    int[] entityCell;
+    private final int[] cellCursor;
+
+    // start and move of the entity of every slot of cellEntities, filled by gather
+    double[] slotX = new double[0];
+    double[] slotY = new double[0];
+    double[] slotMoveX = new double[0];
+    double[] slotMoveY = new double[0];
+
+    public SpatialGrid(double width, double height) {
+        this(width, height, CONST.PLAYER_RADIUS * 2);
+    }
+
+    public SpatialGrid(double width, double height, double cellSize) {
+        this.cellSize = cellSize;
+        columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        cellStart = new int[columns * rows + 1];
+        cellCursor = new int[columns * rows];
+        cellEntities = new int[0];
+        entityCell = new int[0];
+    }
+
+    int column(double x) {
+        int c = (int) (x / cellSize);
+        return c < 0 ? 0 : (c >= columns ? columns - 1 : c);
+    }
+
+    int row(double y) {
+        int r = (int) (y / cellSize);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+    }
+
+    /** buckets the `n` first entities by the cell of (xs[i], ys[i]), ids stay ascending inside a cell **/
+    public void build(double[] xs, double[] ys, int n) {
+        if (entityCell.length < n) {
+            entityCell = new int[xs.length];
+            cellEntities = new int[xs.length];
+        }
+        int cells = columns * rows;
+        int[] start = cellStart;
+        Arrays.fill(start, 0);
+        for (int i = 0; i < n; i++) {
+            int cell = row(ys[i]) * columns + column(xs[i]);
+            entityCell[i] = cell;
+            start[cell + 1]++;
+        }
+        for (int c = 0; c < cells; c++) {
+            start[c + 1] += start[c];
+        }
+        System.arraycopy(start, 0, cellCursor, 0, cells);
+        for (int i = 0; i < n; i++) {
+            cellEntities[cellCursor[entityCell[i]]++] = i;
+        }
+    }
+
+    /** puts the `n` first entities in id order in a single run of slots, for {@link #isSparse} arenas **/
+    public void identity(int n) {
+        if (cellEntities.length < n) {
+            entityCell = new int[n];
+            cellEntities = new int[n];
+        }
+        for (int i = 0; i < n; i++) {
+            cellEntities[i] = i;
+        }
+    }
+
+    /**
+     * copies the start and the move of every entity to the slot {@link #build} or {@link #identity} gave it, so
+     * the entities a narrow phase tests one against sit next to each other in memory
+     */
+    public void gather(double[] xs, double[] ys, double[] toXs, double[] toYs, int n) {
+        if (slotX.length < cellEntities.length) {
+            slotX = new double[cellEntities.length];
+            slotY = new double[cellEntities.length];
+            slotMoveX = new double[cellEntities.length];
+            slotMoveY = new double[cellEntities.length];
+        }
+        for (int s = 0; s < n; s++) {
+            int id = cellEntities[s];
+            slotX[s] = xs[id];
+            slotY[s] = ys[id];
+            slotMoveX[s] = toXs[id] - xs[id];
+            slotMoveY[s] = toYs[id] - ys[id];
+        }
+    }
+
+    /** @return true when pairing everything costs less than building and walking the grid **/
+    public boolean isSparse(int n) {
+        return (long) n * n <= (long) columns * rows;
+    }
+}
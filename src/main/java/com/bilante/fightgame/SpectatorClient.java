@@ -0,0 +1,203 @@
+package com.bilante.fightgame;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Follows a match streamed by a {@link SpectatorServer}: a thread reads the ticks off the socket, applies them to a
+ * local copy of the arena and publishes a snapshot per tick through a {@link SnapshotBuffer}, which the renderer
+ * reads just like the snapshots of a local {@link SimulationLoop}.
+ */
+public class SpectatorClient implements Closeable {
+    public static final String PROPERTY = "fightgame.spectate"; // host:port the UI watches instead of playing
+
+    final SocketChannel channel;
+    final int entities;
+    final double width;
+    final double height;
+    final double step; // simulated seconds per tick on the server
+    final String[] names;
+    final double[] maxHealth;
+    final WorldState world; // positions and HP as of the last tick read
+    private final SnapshotBuffer snapshots = new SnapshotBuffer();
+    private ByteBuffer message = ByteBuffer.allocate(1 << 12).order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer length = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+    private GameListener listener; // told of the HP changes, on the reader thread; set before start()
+    private volatile boolean ended = false;
+    private volatile int winner = -1;
+    private volatile boolean finished = false; // the server sent the end of the match
+    private Thread thread;
+
+    /** connects and reads the description of the arena, {@link #start()} follows the ticks **/
+    public SpectatorClient(String host, int port) throws IOException {
+        channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.socket().setTcpNoDelay(true);
+        try {
+            read();
+            if (message.get() != SpectatorServer.HELLO || message.getInt() != SpectatorServer.MAGIC) {
+                throw new IOException("Not a FightGame spectator server");
+            }
+            int version = message.getInt();
+            if (version != SpectatorServer.VERSION) { throw new IOException("Unsupported protocol version " + version); }
+            entities = message.getInt();
+            width = message.getFloat();
+            height = message.getFloat();
+            step = message.getDouble();
+            names = new String[entities];
+            maxHealth = new double[entities];
+            world = new WorldState(entities);
+            for (int i = 0; i < entities; i++) {
+                maxHealth[i] = message.getFloat();
+                byte[] name = new byte[message.getShort()];
+                message.get(name);
+                names[i] = new String(name, StandardCharsets.UTF_8);
+                world.add(0, 0, 0, 0, maxHealth[i], 0, 0, 0);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        snapshots.front().captureStill(world, -1);
+    }
+
+    /** @param address host:port **/
+    public static SpectatorClient connect(String address) throws IOException {
+        int colon = address.lastIndexOf(':');
+        if (colon == -1) return new SpectatorClient(address, SpectatorServer.DEFAULT_PORT);
+        return new SpectatorClient(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+    }
+
+    /** @param listener gets {@link GameListener#onHealthChanged} on the reader thread, call before {@link #start()} **/
+    public void setListener(GameListener listener) {
+        this.listener = listener;
+    }
+
+    public void start() {
+        thread = new Thread(this::run, "fightgame-spectator");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        try {
+            while (!ended) {
+                read();
+                byte type = message.get();
+                long tick = message.getLong();
+                WorldSnapshot back = snapshots.back();
+                back.capturePrevious(world);
+                switch (type) {
+                    case SpectatorServer.KEYFRAME -> readKeyframe();
+                    case SpectatorServer.DELTA -> readDelta();
+                    case SpectatorServer.END -> {
+                        winner = message.getInt();
+                        finished = true;
+                        ended = true;
+                    }
+                    default -> throw new IOException("Unknown message type " + type);
+                }
+                back.capture(world, tick);
+                snapshots.publish();
+            }
+        } catch (IOException e) {
+            ended = true; // the server went away, the last tick stays on screen
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // closed anyway
+            }
+        }
+    }
+
+    /** reads the next message into `message`, positioned after its length **/
+    private void read() throws IOException {
+        length.clear();
+        fill(length);
+        int size = length.getInt(0);
+        if (message.capacity() < size) message = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        message.clear().limit(size);
+        fill(message);
+        message.flip();
+    }
+
+    private void fill(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) == -1) throw new EOFException("Spectator stream closed");
+        }
+    }
+
+    private void readKeyframe() {
+        for (int i = 0; i < entities; i++) {
+            world.x[i] = (message.getShort() & 0xffff) * width / SpectatorServer.QUANTA;
+            world.y[i] = (message.getShort() & 0xffff) * height / SpectatorServer.QUANTA;
+            setHealth(i, message.getFloat());
+        }
+    }
+
+    private void readDelta() {
+        int mask = message.position();
+        message.position(mask + (entities + 7) / 8);
+        for (int i = 0; i < entities; i++) {
+            if ((message.get(mask + (i >> 3)) & 1 << (i & 7)) == 0) continue;
+            world.x[i] = (message.getShort() & 0xffff) * width / SpectatorServer.QUANTA;
+            world.y[i] = (message.getShort() & 0xffff) * height / SpectatorServer.QUANTA;
+        }
+        int count = message.getInt();
+        for (int c = 0; c < count; c++) {
+            int id = message.getInt();
+            setHealth(id, message.getFloat());
+        }
+    }
+
+    private void setHealth(int id, double health) {
+        double old = world.health[id];
+        world.health[id] = health;
+        world.dead[id] = health <= 0;
+        if (listener != null && old != health) listener.onHealthChanged(id, old, health);
+    }
+
+    /** renderer side: @return the newest tick received, valid until the next call **/
+    public WorldSnapshot latest() {
+        return snapshots.latest();
+    }
+
+    /** @return how far `snapshot` should be drawn from its previous positions to its own at `now` (nanoTime) **/
+    public double alpha(WorldSnapshot snapshot, long now) {
+        return Math.max(0, Math.min(1, (now - snapshot.publishedAt) / (step * 1e9)));
+    }
+
+    /** @return true once the match is over or the server gone **/
+    public boolean isEnded() {
+        return ended;
+    }
+
+    /** @return true once the server sent the end of the match, false while it plays or if the server went away **/
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /** @return the id of the winner once {@link #isEnded()}, -1 for nobody **/
+    public int winner() {
+        return winner;
+    }
+
+    @Override
+    public void close() throws IOException {
+        ended = true;
+        channel.close(); // unblocks the reader
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,402 @@
+package com.bilante.fightgame;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a headless {@link GameBox} at a fixed tick rate and streams it to any number of spectators over non-blocking
+ * sockets, all on one thread. Every tick is encoded once and queued to every client, which gets a single write per
+ * tick; positions are quantized to 16 bits of the arena size, a tick only carries the players whose quantized
+ * position moved (dirty bitmask) and the HP that changed. A client joining, or so far behind that its queue is
+ * full, is sent a keyframe of the whole arena and follows the deltas from there. A queue always has room for the
+ * hello, a keyframe and a delta of the arena, however big, and keeps room for the end of the match.
+ *
+ * <pre>
+ * message  int length of what follows, byte type
+ * hello    int magic, int version, int entities, float width, float height, double step,
+ *          entities * (float max health, short name length, name bytes (UTF-8))
+ * key      long tick, entities * (short x, short y, float health)
+ * delta    long tick, (entities + 7) / 8 bytes dirty bitmask, dirty * (short x, short y),
+ *          int count, count * (int id, float health)
+ * end      long tick, int winner id (-1 for nobody)
+ * </pre>
+ * Everything is little endian, positions are unsigned: x = short / 65535 * width.
+ *
+ * <pre>java -cp target/classes com.bilante.fightgame.SpectatorServer [--port n] [--players n | --roster file.csv] [--size px] [--seed n] [--tick-rate hz] [--share-world file]</pre>
+ */
+public class SpectatorServer {
+    public static final int DEFAULT_PORT = 7654;
+    static final int MAGIC = 0x53504746; // "FGPS" read as little endian bytes
+    static final int VERSION = 1;
+    static final byte HELLO = 0;
+    static final byte KEYFRAME = 1;
+    static final byte DELTA = 2;
+    static final byte END = 3;
+    static final int QUANTA = 0xffff;
+    private static final int CLIENT_QUEUE = 1 << 20; // bytes queued per client before it only gets keyframes, at least
+    private static final int END_SIZE = 4 + 1 + 8 + 4;
+
+    final GameBox gameBox;
+    final double step;
+    final long periodNanos;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final List<Client> clients = new ArrayList<>();
+    private final int entities;
+    private final byte[] hello;
+    private final short[] sentX; // quantized positions and HP the deltas are relative to
+    private final short[] sentY;
+    private final float[] sentHealth;
+    private final ByteBuffer delta;
+    private final ByteBuffer keyframe;
+    private final int queueSize; // bytes per client
+    private long keyframeTick = -1; // tick `keyframe` holds
+    private volatile boolean running = false;
+    private volatile Exception failure; // that stopped the server thread
+    private Thread thread;
+
+    /** listens on `port` (0 for any free one) for the arena of `gameBox`, its players placed **/
+    public SpectatorServer(GameBox gameBox, double tickRate, int port) throws IOException {
+        if (tickRate <= 0) { throw new IllegalArgumentException("Tick rate must be positive: " + tickRate); }
+        this.gameBox = gameBox;
+        this.step = 1 / tickRate;
+        this.periodNanos = Math.round(1e9 / tickRate);
+        gameBox.mirrorPlayers = false;
+        entities = gameBox.world.size;
+        sentX = new short[entities];
+        sentY = new short[entities];
+        sentHealth = new float[entities];
+        hello = hello();
+        delta = message(5 + 8 + (entities + 7) / 8 + entities * 4 + 4 + entities * 8);
+        keyframe = message(5 + 8 + entities * 8);
+        queueSize = Math.max(CLIENT_QUEUE, hello.length + keyframe.capacity() + delta.capacity() + END_SIZE);
+        encodeKeyframe(); // the deltas of the first tick are relative to the start
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /** @return the port the server listens on **/
+    public int port() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "fightgame-spectator-server");
+        thread.start();
+    }
+
+    /** stops the match and closes every connection **/
+    public void stop() {
+        running = false;
+        if (thread == null) return;
+        selector.wakeup();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    /**
+     * blocks until the match is over and every spectator got the end of it, or the server is stopped
+     * @throws IOException if the server failed before
+     */
+    public void join() throws InterruptedException, IOException {
+        if (thread != null) thread.join();
+        if (failure != null) throw new IOException("Spectator server failed at tick " + gameBox.ticks, failure);
+    }
+
+    private void run() {
+        try {
+            long next = System.nanoTime() + periodNanos;
+            boolean ended = false;
+            while (running) {
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait)));
+                } else {
+                    selector.selectNow();
+                }
+                handleKeys();
+                if (ended) {
+                    if (allFlushed()) break; // everyone saw the end
+                    continue;
+                }
+                if (System.nanoTime() >= next) {
+                    gameBox.step(step);
+                    encodeDelta();
+                    broadcast(delta);
+                    next += periodNanos;
+                    if (gameBox.isOver()) {
+                        broadcast(end());
+                        ended = true;
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+        } finally {
+            close();
+        }
+    }
+
+    private void handleKeys() throws IOException {
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            if (!key.isValid()) continue;
+            if (key.isAcceptable()) {
+                SocketChannel channel = server.accept();
+                if (channel == null) continue;
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true); // one write per tick already, don't wait for more
+                Client client = new Client(channel, queueSize);
+                client.key = channel.register(selector, 0, client);
+                client.queue.put(hello);
+                client.needsKeyframe = true;
+                clients.add(client);
+                flush(client);
+            } else if (key.isWritable()) {
+                flush((Client) key.attachment());
+            }
+        }
+    }
+
+    /** queues `message` to every client, a client out of room skips it and resyncs on a keyframe **/
+    private void broadcast(ByteBuffer message) {
+        for (int c = clients.size() - 1; c >= 0; c--) {
+            Client client = clients.get(c);
+            if (client.needsKeyframe) {
+                if (keyframeTick != gameBox.ticks) encodeKeyframe();
+                enqueue(client, keyframe); // holds this tick
+                if (message.get(4) == END) enqueue(client, message);
+            } else {
+                enqueue(client, message);
+            }
+            flush(client);
+        }
+    }
+
+    /** the end always fits, anything else leaves room for it **/
+    private void enqueue(Client client, ByteBuffer message) {
+        int reserve = message.get(4) == END ? 0 : END_SIZE;
+        if (client.queue.remaining() < message.limit() + reserve) {
+            client.needsKeyframe = true; // drops the tick, the next keyframe makes up for it
+            return;
+        }
+        client.queue.put(message.array(), 0, message.limit());
+        if (message.get(4) == KEYFRAME) client.needsKeyframe = false;
+    }
+
+    /** one write of whatever the client has queued, the rest waits for the socket to be writable **/
+    private void flush(Client client) {
+        if (!client.channel.isOpen()) return;
+        client.queue.flip();
+        try {
+            client.channel.write(client.queue);
+        } catch (IOException e) {
+            drop(client); // gone
+            return;
+        } finally {
+            client.queue.compact();
+        }
+        client.key.interestOps(client.queue.position() > 0 ? SelectionKey.OP_WRITE : 0);
+    }
+
+    private boolean allFlushed() {
+        for (Client client : clients) {
+            if (client.channel.isOpen() && client.queue.position() > 0) return false;
+        }
+        return true;
+    }
+
+    private void drop(Client client) {
+        clients.remove(client);
+        client.key.cancel();
+        try {
+            client.channel.close();
+        } catch (IOException ignored) {
+            // closing anyway
+        }
+    }
+
+    private void close() {
+        for (int c = clients.size() - 1; c >= 0; c--) {
+            drop(clients.get(c));
+        }
+        try {
+            server.close();
+            selector.close();
+        } catch (IOException ignored) {
+            // nothing left to release
+        }
+    }
+
+    private static ByteBuffer message(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private byte[] hello() {
+        List<byte[]> names = new ArrayList<>();
+        int length = 5 + 4 + 4 + 4 + 4 + 4 + 8;
+        for (int i = 0; i < entities; i++) {
+            String name = gameBox.players.get(i).name;
+            byte[] bytes = name == null ? new byte[0] : name.getBytes(StandardCharsets.UTF_8);
+            names.add(bytes);
+            length += 6 + bytes.length;
+        }
+        ByteBuffer buffer = message(length);
+        buffer.putInt(length - 4).put(HELLO).putInt(MAGIC).putInt(VERSION).putInt(entities)
+                .putFloat((float) gameBox.width).putFloat((float) gameBox.height).putDouble(step);
+        for (int i = 0; i < entities; i++) {
+            buffer.putFloat((float) gameBox.world.health[i]).putShort((short) names.get(i).length).put(names.get(i));
+        }
+        return buffer.array();
+    }
+
+    private short quantizeX(int i) {
+        return (short) Math.round(Math.max(0, Math.min(1, gameBox.world.x[i] / gameBox.width)) * QUANTA);
+    }
+
+    private short quantizeY(int i) {
+        return (short) Math.round(Math.max(0, Math.min(1, gameBox.world.y[i] / gameBox.height)) * QUANTA);
+    }
+
+    private void encodeKeyframe() {
+        ByteBuffer buffer = keyframe.clear();
+        buffer.putInt(0).put(KEYFRAME).putLong(gameBox.ticks);
+        for (int i = 0; i < entities; i++) {
+            buffer.putShort(quantizeX(i)).putShort(quantizeY(i)).putFloat((float) gameBox.world.health[i]);
+        }
+        buffer.putInt(0, buffer.position() - 4).flip();
+        keyframeTick = gameBox.ticks;
+        // the state every client follows from now on, whether it got this keyframe or the deltas up to it
+        for (int i = 0; i < entities; i++) {
+            sentX[i] = quantizeX(i);
+            sentY[i] = quantizeY(i);
+            sentHealth[i] = (float) gameBox.world.health[i];
+        }
+    }
+
+    private void encodeDelta() {
+        ByteBuffer buffer = delta.clear();
+        buffer.putInt(0).put(DELTA).putLong(gameBox.ticks);
+        int mask = buffer.position();
+        int maskBytes = (entities + 7) / 8;
+        for (int b = 0; b < maskBytes; b++) {
+            buffer.put((byte) 0);
+        }
+        for (int i = 0; i < entities; i++) {
+            short x = quantizeX(i);
+            short y = quantizeY(i);
+            if (x != sentX[i] || y != sentY[i]) {
+                sentX[i] = x;
+                sentY[i] = y;
+                buffer.put(mask + (i >> 3), (byte) (buffer.get(mask + (i >> 3)) | 1 << (i & 7)));
+                buffer.putShort(x).putShort(y);
+            }
+        }
+        int countPosition = buffer.position();
+        int count = 0;
+        buffer.putInt(0);
+        for (int i = 0; i < entities; i++) {
+            float health = (float) gameBox.world.health[i];
+            if (health != sentHealth[i]) {
+                sentHealth[i] = health;
+                buffer.putInt(i).putFloat(health);
+                count++;
+            }
+        }
+        buffer.putInt(countPosition, count);
+        buffer.putInt(0, buffer.position() - 4).flip();
+    }
+
+    private ByteBuffer end() {
+        ByteBuffer buffer = message(END_SIZE);
+        buffer.putInt(END_SIZE - 4).put(END).putLong(gameBox.ticks).putInt(gameBox.survivor()).flip();
+        return buffer;
+    }
+
+    /** a spectator connection and the bytes it has not been sent yet **/
+    private static class Client {
+        final SocketChannel channel;
+        final ByteBuffer queue; // write mode between flushes
+        SelectionKey key;
+        boolean needsKeyframe;
+
+        Client(SocketChannel channel, int queueSize) {
+            this.channel = channel;
+            queue = ByteBuffer.allocate(queueSize);
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = DEFAULT_PORT;
+        int players = CONST.MAX_PLAYERS;
+        Path rosterFile = null;
+        double size = CONST.GAME_WIDTH;
+        long seed = MatchRandom.freshSeed();
+        double tickRate = 1 / CONST.FIXED_STEP;
+        Path worldFile = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port" -> port = Integer.parseInt(args[++i]);
+                case "--players" -> players = Integer.parseInt(args[++i]);
+                case "--roster" -> rosterFile = Path.of(args[++i]);
+                case "--size" -> size = Double.parseDouble(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                case "--tick-rate" -> tickRate = Double.parseDouble(args[++i]);
+                case "--share-world" -> worldFile = Path.of(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+
+        GameBox gameBox = new GameBox(size, size, seed);
+        List<SidePanel.PlayerInput> roster = rosterFile != null ? Tournament.readRoster(rosterFile) : Tournament.allSplits();
+        int count = rosterFile != null ? roster.size() : players;
+        for (int i = 0; i < count; i++) {
+            SidePanel.PlayerInput input = roster.get(rosterFile != null ? i : (int) (gameBox.random.nextDouble() * roster.size()));
+            gameBox.addPlayer(input.name, CONST.healthFromPoints(input.healthPoints),
+                    CONST.damagesFromPoints(input.damagePoints), CONST.speedFromPoints(input.speedPoints));
+            if (input.strategy != null) gameBox.setStrategy(i, Strategy.named(input.strategy));
+        }
+        if (count <= CONST.MAX_PLAYERS && size == CONST.GAME_WIDTH) {
+            gameBox.placePlayersOnStart();
+        } else {
+            gameBox.placePlayersOnGrid();
+        }
+
+        WorldImage image = null;
+        if (worldFile != null) {
+            image = new WorldImage(worldFile, count, size, size);
+            image.publish(gameBox.world, gameBox.ticks);
+            gameBox.addListener(image);
+        }
+        SpectatorServer server = new SpectatorServer(gameBox, tickRate, port);
+        System.err.printf(Locale.ROOT, "%d players, seed %d, spectators on port %d%n", count, seed, server.port());
+        server.start();
+        server.join();
+        int survivor = gameBox.survivor();
+        System.err.println((survivor == -1 ? "Nobody" : gameBox.players.get(survivor).name) + " wins after " + gameBox.ticks + " ticks");
+        if (image != null) image.close();
+    }
+}
@@ -0,0 +1,94 @@
+package com.bilante.fightgame;
+
+/**
+ * How a player picks where it goes. A player without one wanders: it heads for a random point, bounces off walls
+ * and players and picks a new point when it gets there. A strategy is asked every tick, before anything moves, and
+ * may set a new target from what the {@link NeighbourIndex} of the arena reports around the player; the bounces
+ * still happen, it just steers again on the next tick.
+ *
+ * Strategies are named in rosters: wander, hunt, flee or kite.
+ */
+public interface Strategy {
+    /** sets world.targetX / targetY of `self` if it wants to go elsewhere, called for living players only **/
+    void steer(GameBox arena, int self, NeighbourIndex neighbours);
+
+    /** @return a new strategy named `name`, null for wander **/
+    static Strategy named(String name) {
+        return switch (name) {
+            case "wander" -> null;
+            case "hunt" -> new HuntNearest();
+            case "flee" -> new FleeStrongest();
+            case "kite" -> new Kite();
+            default -> throw new IllegalArgumentException("Unknown strategy " + name + ", expected wander, hunt, flee or kite");
+        };
+    }
+
+    /** sets the target of `self` to (x, y), kept inside the arena **/
+    static void aim(GameBox arena, int self, double x, double y) {
+        double radius = CONST.PLAYER_RADIUS;
+        arena.world.targetX[self] = Math.max(radius, Math.min(arena.width - radius, x));
+        arena.world.targetY[self] = Math.max(radius, Math.min(arena.height - radius, y));
+    }
+
+    /** sets the target of `self` as far as the arena allows on the line from `enemy` through `self` **/
+    static void runFrom(GameBox arena, int self, int enemy) {
+        WorldState w = arena.world;
+        double dx = w.x[self] - w.x[enemy];
+        double dy = w.y[self] - w.y[enemy];
+        double distance = Math.sqrt(dx * dx + dy * dy);
+        if (distance == 0) return; // no way out is better than another, keep going
+        double far = arena.width + arena.height;
+        aim(arena, self, w.x[self] + dx / distance * far, w.y[self] + dy / distance * far);
+    }
+
+    /** goes for the nearest enemy **/
+    class HuntNearest implements Strategy {
+        @Override
+        public void steer(GameBox arena, int self, NeighbourIndex neighbours) {
+            if (neighbours.nearest(self, 1) == 0) return;
+            int enemy = neighbours.found(0);
+            aim(arena, self, arena.world.x[enemy], arena.world.y[enemy]);
+        }
+    }
+
+    /** runs away from the hardest hitter in sight, wanders while nobody is **/
+    class FleeStrongest implements Strategy {
+        static final double SIGHT = CONST.PLAYER_RADIUS * 8;
+
+        @Override
+        public void steer(GameBox arena, int self, NeighbourIndex neighbours) {
+            int count = neighbours.within(self, SIGHT);
+            int strongest = -1;
+            for (int f = 0; f < count; f++) {
+                int enemy = neighbours.found(f);
+                if (strongest == -1 || arena.world.damage[enemy] > arena.world.damage[strongest]
+                        || arena.world.damage[enemy] == arena.world.damage[strongest] && enemy < strongest) {
+                    strongest = enemy;
+                }
+            }
+            if (strongest != -1) runFrom(arena, self, strongest);
+        }
+    }
+
+    /**
+     * hit and run on the nearest enemy: a contact only hurts the player who bounced less recently (both on a tie),
+     * so it closes in while its last bounce is the newer one and backs off while it isn't
+     */
+    class Kite implements Strategy {
+        static final double RANGE = CONST.PLAYER_RADIUS * 6;
+
+        @Override
+        public void steer(GameBox arena, int self, NeighbourIndex neighbours) {
+            if (neighbours.nearest(self, 1) == 0) return;
+            int enemy = neighbours.found(0);
+            WorldState w = arena.world;
+            if (w.lastHit[self] > w.lastHit[enemy]) {
+                aim(arena, self, w.x[enemy], w.y[enemy]);
+                return;
+            }
+            double dx = w.x[self] - w.x[enemy];
+            double dy = w.y[self] - w.y[enemy];
+            if (dx * dx + dy * dy < RANGE * RANGE) runFrom(arena, self, enemy);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.bilante.fightgame;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Counters a {@link GameBox} keeps about its last ticks while it has a TickStats, for the performance HUD: how long
+ * the steps took in a rolling histogram, the broad and narrow phase pairs, the entities and the bytes the stepping
+ * thread allocated. Written by the thread that steps, read by the HUD without locks: a value may be a tick late.
+ *
+ * The histogram has 8 buckets per power of two of microseconds, so a percentile is within 12% of the true value.
+ */
+public class TickStats {
+    static final int WINDOW = 256; // ticks the percentiles and the allocation average cover
+    private static final int SUB_BUCKETS = 8;
+    private static final int BUCKETS = 256;
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    final int[] histogram = new int[BUCKETS]; // ticks of the window per bucket of step time
+    private final int[] windowBuckets = new int[WINDOW];
+    private final long[] windowAllocated = new long[WINDOW];
+    private int next = 0;
+    private volatile int ticks = 0; // in the window, up to WINDOW
+    private volatile long allocatedInWindow = 0;
+    volatile int candidatePairs = 0;
+    volatile int contactPairs = 0;
+    volatile int entities = 0;
+    volatile int alive = 0;
+    private long started;
+    private long allocatedBefore;
+
+    private static com.sun.management.ThreadMXBean threads() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads;
+        }
+        return null;
+    }
+
+    /** @return true if the JVM counts the bytes allocated by a thread **/
+    public static boolean countsAllocations() {
+        return THREADS != null;
+    }
+
+    void begin() {
+        allocatedBefore = THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+        started = System.nanoTime();
+    }
+
+    void end(GameBox gameBox) {
+        long nanos = System.nanoTime() - started;
+        long allocated = THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore : 0;
+        record(nanos / 1000, allocated);
+        candidatePairs = gameBox.candidatePairs;
+        contactPairs = gameBox.contactPairs;
+        entities = gameBox.world.size;
+        alive = gameBox.aliveCount;
+    }
+
+    /** adds a tick of `micros` microseconds that allocated `allocated` bytes to the window, dropping the oldest **/
+    void record(long micros, long allocated) {
+        int bucket = bucket(micros);
+        if (ticks == WINDOW) {
+            histogram[windowBuckets[next]]--;
+            allocatedInWindow -= windowAllocated[next];
+        } else {
+            ticks++;
+        }
+        histogram[bucket]++;
+        windowBuckets[next] = bucket;
+        windowAllocated[next] = allocated;
+        allocatedInWindow += allocated;
+        next = (next + 1) % WINDOW;
+    }
+
+    /** @return the bucket of a step of `micros` microseconds **/
+    static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) return (int) micros;
+        int exponent = 63 - Long.numberOfLeadingZeros(micros); // 3 or more
+        int bucket = (exponent - 2) * SUB_BUCKETS + (int) (micros >> (exponent - 3) & SUB_BUCKETS - 1);
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    /** @return the largest step time of `bucket`, in microseconds **/
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS + 2;
+        long sub = bucket % SUB_BUCKETS;
+        return ((SUB_BUCKETS + sub + 1) << (exponent - 3)) - 1;
+    }
+
+    /** @return the step time under which `fraction` of the ticks of the window fall, in microseconds, -1 before any **/
+    public long percentile(double fraction) {
+        int count = ticks;
+        if (count == 0) return -1;
+        long rank = (long) Math.ceil(fraction * count);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += histogram[b];
+            if (seen >= rank) return upperBound(b);
+        }
+        return upperBound(BUCKETS - 1); // the window moved while we counted
+    }
+
+    /** @return mean bytes allocated by a tick of the window, -1 if the JVM doesn't count them or before any tick **/
+    public long allocatedPerTick() {
+        int count = ticks;
+        return THREADS == null || count == 0 ? -1 : allocatedInWindow / count;
+    }
+}
@@ -0,0 +1,319 @@
+package com.bilante.fightgame;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Batch of headless duels: every entry of the roster meets every other one, in both start orders, `rounds` times.
+ * Matches run in parallel on a fork-join pool; each result is written out as soon as it is known and only the
+ * per entry aggregates stay in memory.
+ *
+ * <pre>java -cp target/classes com.bilante.fightgame.Tournament [--roster file.csv] [--rounds n] [--seed n] [--threads n] [--step seconds | --kinetic] [--replays dir] [--cache file] [--out results.jsonl|results.csv]</pre>
+ */
+public class Tournament {
+    public static final double SURVIVAL_BUCKET = 5; // simulated seconds per step of the survival curve
+
+    final List<SidePanel.PlayerInput> roster;
+    final int rounds;
+    final long seed;
+    final Stats[] stats;
+    double step = CONST.FIXED_STEP; // simulated seconds per tick, collisions are swept so coarser steps stay exact
+    boolean kinetic = false; // jump from collision to collision instead of stepping
+    Path replays; // directory receiving one replay per match, none if null
+    MatchCache cache; // results of matches played before, not read while recording replays; none if null
+
+    /** @param seed base seed, match `i` is seeded with {@link MatchRandom#seedFor(long, long)} so reruns are identical **/
+    public Tournament(List<SidePanel.PlayerInput> roster, int rounds, long seed) {
+        if (roster.size() < 2) { throw new IllegalArgumentException("At least two players"); }
+        this.roster = roster;
+        this.rounds = rounds;
+        this.seed = seed;
+        stats = new Stats[roster.size()];
+        for (int i = 0; i < stats.length; i++) {
+            stats[i] = new Stats();
+        }
+    }
+
+    /** @return every split of SHARED_POINTS the side panel accepts: at least one damage and one health point, all points spent **/
+    public static List<SidePanel.PlayerInput> allSplits() {
+        List<SidePanel.PlayerInput> splits = new ArrayList<>();
+        for (int damage = 1; damage < CONST.SHARED_POINTS; damage++) {
+            for (int health = 1; damage + health <= CONST.SHARED_POINTS; health++) {
+                int speed = CONST.SHARED_POINTS - damage - health;
+                SidePanel.PlayerInput input = new SidePanel.PlayerInput(damage, speed, health);
+                input.setName(splitName(input));
+                splits.add(input);
+            }
+        }
+        return splits;
+    }
+
+    /**
+     * reads one player per line: `name,damage,speed,health[,strategy]`, see {@link Strategy#named} for the strategies.
+     * Blank lines and lines starting with # are skipped.
+     */
+    public static List<SidePanel.PlayerInput> readRoster(Path file) throws IOException {
+        List<SidePanel.PlayerInput> roster = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] fields = line.split(",");
+            if (fields.length != 4 && fields.length != 5) {
+                throw new IllegalArgumentException("Expected name,damage,speed,health[,strategy] but got: " + line);
+            }
+            SidePanel.PlayerInput input = new SidePanel.PlayerInput(
+                    Integer.parseInt(fields[1].strip()),
+                    Integer.parseInt(fields[2].strip()),
+                    Integer.parseInt(fields[3].strip())
+            );
+            input.setName(fields[0].strip());
+            if (fields.length == 5) {
+                Strategy.named(fields[4].strip()); // fails on an unknown name now rather than mid tournament
+                input.setStrategy(fields[4].strip());
+            }
+            roster.add(input);
+        }
+        return roster;
+    }
+
+    static String splitName(SidePanel.PlayerInput input) {
+        return "D" + input.damagePoints + "-S" + input.speedPoints + "-H" + input.healthPoints;
+    }
+
+    public int matchCount() {
+        return roster.size() * (roster.size() - 1) * rounds;
+    }
+
+    /**
+     * runs every match on `threads` workers and streams one line per match to `out`
+     * @param csv CSV lines instead of JSON lines
+     */
+    public void run(Writer out, boolean csv, int threads) throws InterruptedException {
+        int n = roster.size();
+        int perRound = n * (n - 1);
+        if (csv) {
+            write(out, "match,round,seed,first,second,winner,duration,ticks,first_health,second_health\n");
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.submit(() -> IntStream.range(0, matchCount()).parallel().forEach(index -> {
+                int round = index / perRound;
+                int pair = index % perRound;
+                int first = pair / (n - 1);
+                int second = pair % (n - 1);
+                if (second >= first) second++; // skip the diagonal
+
+                List<SidePanel.PlayerInput> inputs = List.of(roster.get(first), roster.get(second));
+                Match.MatchResult result;
+                if (cache != null && (kinetic || replays == null)) {
+                    result = cache.run(inputs, MatchRandom.seedFor(seed, index), step, kinetic);
+                } else {
+                    Match match = new Match(inputs, MatchRandom.seedFor(seed, index), step);
+                    if (kinetic) {
+                        match.kinetic();
+                    } else if (replays != null) {
+                        try {
+                            match.record(replays.resolve("match-" + index + ".fgr"));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                    result = match.run();
+                }
+                record(first, second, result);
+                write(out, csv ? csvLine(index, round, first, second, result) : jsonLine(index, round, first, second, result));
+            })).get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void record(int first, int second, Match.MatchResult result) {
+        int[] entries = {first, second};
+        for (int slot = 0; slot < 2; slot++) {
+            boolean won = result.winnerIndex() == slot;
+            stats[entries[slot]].record(won, result.duration(), result.deathTimes()[slot]);
+        }
+    }
+
+    private static void write(Writer out, String line) {
+        synchronized (out) {
+            try {
+                out.write(line);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private String name(int entry) {
+        String name = roster.get(entry).name;
+        return name != null ? name : splitName(roster.get(entry));
+    }
+
+    private String csvLine(int index, int round, int first, int second, Match.MatchResult result) {
+        return String.format(Locale.ROOT, "%d,%d,%d,%s,%s,%s,%.3f,%d,%.2f,%.2f%n",
+                index, round, result.seed(), csvField(name(first)), csvField(name(second)),
+                result.winnerIndex() == -1 ? "" : csvField(name(result.winnerIndex() == 0 ? first : second)),
+                result.duration(), result.ticks(), result.finalHealth()[0], result.finalHealth()[1]);
+    }
+
+    private String jsonLine(int index, int round, int first, int second, Match.MatchResult result) {
+        return String.format(Locale.ROOT,
+                "{\"match\":%d,\"round\":%d,\"seed\":%d,\"first\":%s,\"second\":%s,\"winner\":%s,\"duration\":%.3f,\"ticks\":%d,\"health\":[%.2f,%.2f]}%n",
+                index, round, result.seed(), jsonString(name(first)), jsonString(name(second)),
+                result.winnerIndex() == -1 ? "null" : jsonString(name(result.winnerIndex() == 0 ? first : second)),
+                result.duration(), result.ticks(), result.finalHealth()[0], result.finalHealth()[1]);
+    }
+
+    /** @return `value` as is, or quoted with its quotes doubled if it holds a comma, a quote or a line break (RFC 4180) **/
+    static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    static String jsonString(String value) {
+        StringBuilder text = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> text.append("\\\"");
+                case '\\' -> text.append("\\\\");
+                case '\n' -> text.append("\\n");
+                case '\r' -> text.append("\\r");
+                case '\t' -> text.append("\\t");
+                default -> {
+                    if (c < 0x20) text.append(String.format(Locale.ROOT, "\\u%04x", (int) c)); // other control characters
+                    else text.append(c);
+                }
+            }
+        }
+        return text.append('"').toString();
+    }
+
+    /** one CSV line per roster entry: win rate, mean time to kill of its wins, survival share at every bucket **/
+    public void writeSummary(Writer out) throws IOException {
+        int buckets = survivalBuckets();
+        StringBuilder header = new StringBuilder("player,games,wins,win_rate,mean_time_to_kill");
+        for (int b = 1; b <= buckets; b++) {
+            header.append(",alive_at_").append((int) (b * SURVIVAL_BUCKET)).append('s');
+        }
+        out.write(header.append('\n').toString());
+        for (int i = 0; i < stats.length; i++) {
+            Stats s = stats[i];
+            StringBuilder line = new StringBuilder();
+            synchronized (s) {
+                line.append(csvField(name(i))).append(',').append(s.games).append(',').append(s.wins)
+                        .append(',').append(String.format(Locale.ROOT, "%.4f", s.games == 0 ? 0 : (double) s.wins / s.games))
+                        .append(',').append(String.format(Locale.ROOT, "%.3f", s.wins == 0 ? Double.NaN : s.timeToKill / s.wins));
+                long deaths = 0;
+                for (int b = 0; b < buckets; b++) {
+                    deaths += s.deaths[b];
+                    line.append(',').append(String.format(Locale.ROOT, "%.4f", s.games == 0 ? 0 : 1 - (double) deaths / s.games));
+                }
+            }
+            out.write(line.append('\n').toString());
+        }
+        out.flush();
+    }
+
+    static int survivalBuckets() {
+        return (int) Math.ceil(Match.MAX_DURATION / SURVIVAL_BUCKET);
+    }
+
+    /** aggregates of one roster entry, updated by the workers **/
+    static class Stats {
+        long games;
+        long wins;
+        double timeToKill; // sum of the durations of the won matches
+        final long[] deaths = new long[survivalBuckets()]; // deaths per survival bucket
+
+        synchronized void record(boolean won, double duration, double deathTime) {
+            games++;
+            if (won) {
+                wins++;
+                timeToKill += duration;
+            }
+            if (!Double.isNaN(deathTime)) {
+                deaths[Math.min(deaths.length - 1, (int) (deathTime / SURVIVAL_BUCKET))]++;
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path rosterFile = null;
+        Path outFile = null;
+        Path replays = null;
+        Path cacheFile = null;
+        int rounds = 1;
+        long seed = 0;
+        double step = CONST.FIXED_STEP;
+        boolean kinetic = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--roster" -> rosterFile = Path.of(args[++i]);
+                case "--rounds" -> rounds = Integer.parseInt(args[++i]);
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--out" -> outFile = Path.of(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                case "--step" -> step = Double.parseDouble(args[++i]);
+                case "--kinetic" -> kinetic = true;
+                case "--replays" -> replays = Files.createDirectories(Path.of(args[++i]));
+                case "--cache" -> cacheFile = Path.of(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+
+        List<SidePanel.PlayerInput> roster = rosterFile != null ? readRoster(rosterFile) : allSplits();
+        if (kinetic && roster.stream().anyMatch(input -> input.strategy != null)) {
+            throw new IllegalArgumentException("--kinetic plays straight lines, the roster has strategies");
+        }
+        Tournament tournament = new Tournament(roster, rounds, seed);
+        tournament.replays = replays;
+        tournament.step = step;
+        tournament.kinetic = kinetic;
+        if (cacheFile != null) {
+            tournament.cache = new MatchCache(MatchCache.DEFAULT_CAPACITY, cacheFile);
+        }
+        boolean csv = outFile != null && outFile.toString().endsWith(".csv");
+        System.err.println(tournament.matchCount() + " matches on " + threads + " threads");
+
+        long start = System.nanoTime();
+        try (Writer out = outFile != null
+                ? Files.newBufferedWriter(outFile, StandardCharsets.UTF_8)
+                : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) {
+            tournament.run(out, csv, threads);
+            // the summary goes wherever the match lines don't
+            Writer summary = new BufferedWriter(new OutputStreamWriter(outFile != null ? System.out : System.err, StandardCharsets.UTF_8));
+            tournament.writeSummary(summary);
+        } finally {
+            if (tournament.cache != null) tournament.cache.close();
+        }
+        if (tournament.cache != null) {
+            System.err.println(tournament.cache.hits() + " matches from the cache, " + tournament.cache.misses() + " played");
+        }
+        System.err.printf(Locale.ROOT, "done in %.1f s%n", (System.nanoTime() - start) / 1e9);
+    }
+}
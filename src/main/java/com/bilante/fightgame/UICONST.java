@@ -0,0 +1,31 @@
+package com.bilante.fightgame;
+
+import javafx.scene.paint.Color;
+
+/** display constants, kept apart from {@link CONST} so the engine never loads JavaFX **/
+public class UICONST {
+    private static final int PALETTE_SIZE = 24; // colors before they repeat, the canvas renderer makes a sprite of each
+
+    public static final Color[] colors = palette(
+            Color.rgb(35, 199, 0),
+            Color.rgb(0, 199, 146),
+            Color.rgb(206, 16, 16),
+            Color.rgb(118, 10, 122),
+            Color.rgb(150, 50, 10)
+    );
+
+    /** @return the color of player `id`, the same in the arena and the side panel **/
+    public static Color color(int id) {
+        return colors[id % colors.length];
+    }
+
+    /** the given colors first, then hues a golden angle apart, which stay distinct from their neighbours **/
+    private static Color[] palette(Color... first) {
+        Color[] palette = new Color[PALETTE_SIZE];
+        System.arraycopy(first, 0, palette, 0, first.length);
+        for (int c = first.length; c < PALETTE_SIZE; c++) {
+            palette[c] = Color.hsb((c * 137.508) % 360, 0.75, 0.8);
+        }
+        return palette;
+    }
+}
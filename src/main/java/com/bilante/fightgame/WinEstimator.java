@@ -0,0 +1,130 @@
+package com.bilante.fightgame;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Live win probability of every player of a match, from rollouts: about once a second the simulation thread takes a
+ * {@link Checkpoint} of the arena (a few array copies) and hands it to a pool of low priority workers, which play it
+ * on to the end with other random targets and count who wins. A new estimate cancels the one before if it is still
+ * running, its checkpoint is stale; neither the simulation nor the FX thread ever waits on the workers.
+ *
+ * The number of rollouts per estimate follows how many the last estimate managed in half a second, between
+ * {@value #MIN_ROLLOUTS} and {@value #MAX_ROLLOUTS}: when the machine is busy the rollouts get slower and fewer of
+ * them are asked for.
+ */
+public class WinEstimator implements GameListener {
+    public static final String PROPERTY = "fightgame.winEstimate"; // false to play without the estimates
+    static final long PERIOD_NANOS = 1_000_000_000;
+    static final double BUSY_SHARE = 0.5; // of the period the rollouts of an estimate should take
+    static final int MIN_ROLLOUTS = 8;
+    static final int MAX_ROLLOUTS = 400;
+
+    final double step;
+    private final Consumer<double[]> listener;
+    private final ThreadPoolExecutor workers;
+    private final int workerCount;
+    private Estimate current; // simulation thread only
+    volatile int rollouts = 32; // of the next estimate
+    private volatile boolean stopped = false;
+
+    /**
+     * @param step simulated seconds per tick of the arena
+     * @param listener gets the win share of every player of the arena on a worker thread, draws count for nobody
+     */
+    public WinEstimator(double step, Consumer<double[]> listener) {
+        this.step = step;
+        this.listener = listener;
+        workerCount = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger created = new AtomicInteger();
+        workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+            Thread thread = new Thread(task, "fightgame-estimate-" + created.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY); // the simulation and the FX thread come first
+            return thread;
+        });
+        workers.prestartAllCoreThreads(); // not on the first tick of the simulation
+    }
+
+    /** @return an estimator unless the {@value #PROPERTY} system property is false **/
+    public static WinEstimator fromSettings(double step, Consumer<double[]> listener) {
+        return "false".equals(System.getProperty(PROPERTY)) ? null : new WinEstimator(step, listener);
+    }
+
+    @Override
+    public void onTick(GameBox gameBox) {
+        long now = System.nanoTime();
+        if (stopped || gameBox.isOver() || current != null && now - current.started < PERIOD_NANOS) return;
+        if (current != null) current.cancelled = true; // no-op once it is done
+        current = new Estimate(new Checkpoint(gameBox, step, null), rollouts, now);
+        for (int w = 0; w < workerCount; w++) {
+            workers.execute(current::work);
+        }
+    }
+
+    /** cancels the estimate under way and takes no more checkpoints **/
+    public void stop() {
+        stopped = true;
+        workers.shutdownNow();
+    }
+
+    /** the rollouts of one checkpoint, shared by the workers **/
+    private final class Estimate {
+        final Checkpoint checkpoint;
+        final int budget;
+        final long started;
+        final long seed;
+        final AtomicInteger next = new AtomicInteger();
+        final int[] wins;
+        volatile boolean cancelled = false;
+        // guarded by `this`
+        private int completed = 0;
+        private int working = workerCount;
+
+        Estimate(Checkpoint checkpoint, int budget, long started) {
+            this.checkpoint = checkpoint;
+            this.budget = budget;
+            this.started = started;
+            seed = MatchRandom.seedFor(checkpoint.seed, checkpoint.tick());
+            wins = new int[checkpoint.size];
+        }
+
+        void work() {
+            int rollout;
+            while (!cancelled && !stopped && (rollout = next.getAndIncrement()) < budget) {
+                Match match = new Match(checkpoint, MatchRandom.seedFor(seed, rollout));
+                while (match.isRunning() && !cancelled && !stopped) {
+                    match.tick();
+                }
+                if (match.isRunning()) break;
+                record(match.gameBox.survivor());
+            }
+            finish();
+        }
+
+        private synchronized void record(int winner) {
+            if (winner != -1) wins[winner]++;
+            completed++;
+        }
+
+        /** the last worker out adapts the next budget to the pace of this one, and publishes unless cancelled **/
+        private void finish() {
+            double[] shares;
+            synchronized (this) {
+                if (--working > 0) return;
+                double seconds = (System.nanoTime() - started) / 1e9;
+                int paced = (int) Math.round(completed / seconds * BUSY_SHARE * PERIOD_NANOS / 1e9);
+                rollouts = Math.max(MIN_ROLLOUTS, Math.min(MAX_ROLLOUTS, paced));
+                if (cancelled || stopped || completed == 0) return;
+                shares = new double[wins.length];
+                for (int i = 0; i < wins.length; i++) {
+                    shares[i] = (double) wins[i] / completed;
+                }
+            }
+            listener.accept(shares);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.bilante.fightgame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * The entity state of an arena (positions, targets, HP, flags) in one fixed-layout block of memory off the Java
+ * heap: a direct buffer, or a file mapped in memory that other processes map too. The simulation thread publishes
+ * every tick into it with one bulk copy per column; any number of threads or processes read it in place, without
+ * locks and without copying it first. A sequence number, odd while a tick is being written, tells a reader whether
+ * what it read was torn: {@link #beginRead()}, read, {@link #validate(long)}, and read again if that fails.
+ *
+ * The image of a mapped file is a snapshot on disk already; {@link #save(Path)} writes one in a single bulk write.
+ *
+ * <pre>
+ * header   int magic, int version, int capacity, int entities, double width, double height,
+ *          long tick, long sequence (odd while a tick is written), 16 bytes reserved
+ * columns  capacity * double x, capacity * double y, capacity * double target x, capacity * double target y,
+ *          capacity * double health, capacity * byte flags (bit 0 dead)
+ * </pre>
+ * Everything is little endian.
+ *
+ * <pre>java -cp target/classes com.bilante.fightgame.WorldImage file [--interval ms]</pre>
+ */
+public class WorldImage implements GameListener, Closeable {
+    public static final String PROPERTY = "fightgame.shareWorld"; // file the UI maps the world of its matches to
+    static final int MAGIC = 0x49574746; // "FGWI" read as little endian bytes
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int ENTITIES_OFFSET = 12;
+    static final int TICK_OFFSET = 32;
+    static final int SEQUENCE_OFFSET = 40;
+    static final byte DEAD = 1;
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    final ByteBuffer buffer;
+    final int capacity;
+    private final FileChannel channel; // null unless mapped
+    private final DoubleBuffer xs;
+    private final DoubleBuffer ys;
+    private final DoubleBuffer targetXs;
+    private final DoubleBuffer targetYs;
+    private final DoubleBuffer healths;
+    private final int flagsOffset;
+
+    /** an image for `capacity` entities in a direct buffer, for the readers of this process **/
+    public WorldImage(int capacity, double width, double height) {
+        this(ByteBuffer.allocateDirect(size(capacity)), null, capacity);
+        writeHeader(width, height);
+    }
+
+    /** an image for `capacity` entities in `file`, mapped so other processes can {@link #open} it **/
+    public WorldImage(Path file, int capacity, double width, double height) throws IOException {
+        this(map(file, size(capacity), true), capacity, width, height);
+    }
+
+    private WorldImage(Mapped mapped, int capacity, double width, double height) {
+        this(mapped.buffer, mapped.channel, capacity);
+        writeHeader(width, height);
+    }
+
+    private WorldImage(ByteBuffer buffer, FileChannel channel, int capacity) {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.channel = channel;
+        this.capacity = capacity;
+        xs = column(0);
+        ys = column(1);
+        targetXs = column(2);
+        targetYs = column(3);
+        healths = column(4);
+        flagsOffset = HEADER_SIZE + 5 * capacity * Double.BYTES;
+    }
+
+    /** maps the image another process publishes to `file`, read only **/
+    public static WorldImage open(Path file) throws IOException {
+        Mapped mapped = map(file, -1, false);
+        ByteBuffer buffer = mapped.buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            mapped.channel.close();
+            throw new IOException("Not a FightGame world image: " + file);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            mapped.channel.close();
+            throw new IOException("Unsupported world image version " + buffer.getInt(4));
+        }
+        return new WorldImage(buffer, mapped.channel, buffer.getInt(8));
+    }
+
+    /** @param size bytes to map, -1 for the whole file **/
+    private static Mapped map(Path file, long size, boolean write) throws IOException {
+        FileChannel channel = write
+                ? FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (size == -1) size = channel.size();
+            MappedByteBuffer buffer = channel.map(write ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, size);
+            return new Mapped(buffer, channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private record Mapped(MappedByteBuffer buffer, FileChannel channel) { }
+
+    /** @return bytes of the image of `capacity` entities **/
+    static int size(int capacity) {
+        return HEADER_SIZE + capacity * (5 * Double.BYTES + 1);
+    }
+
+    private DoubleBuffer column(int index) {
+        int offset = HEADER_SIZE + index * capacity * Double.BYTES;
+        return buffer.slice(offset, capacity * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+    }
+
+    private void writeHeader(double width, double height) {
+        buffer.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, capacity).putInt(ENTITIES_OFFSET, 0)
+                .putDouble(16, width).putDouble(24, height).putLong(TICK_OFFSET, -1);
+        LONGS.setRelease(buffer, SEQUENCE_OFFSET, 0L);
+    }
+
+    @Override
+    public void onTick(GameBox gameBox) {
+        publish(gameBox.world, gameBox.ticks);
+    }
+
+    /** simulation side: writes the state of `world` after tick `tick`, the only writer of the image **/
+    public void publish(WorldState world, long tick) {
+        int n = world.size;
+        if (n > capacity) throw new IllegalStateException(n + " entities in an image for " + capacity);
+        long sequence = (long) LONGS.getOpaque(buffer, SEQUENCE_OFFSET);
+        LONGS.setOpaque(buffer, SEQUENCE_OFFSET, sequence + 1);
+        VarHandle.storeStoreFence(); // readers see the odd sequence before any of the new values
+        buffer.putInt(ENTITIES_OFFSET, n).putLong(TICK_OFFSET, tick);
+        xs.put(0, world.x, 0, n);
+        ys.put(0, world.y, 0, n);
+        targetXs.put(0, world.targetX, 0, n);
+        targetYs.put(0, world.targetY, 0, n);
+        healths.put(0, world.health, 0, n);
+        for (int i = 0; i < n; i++) {
+            buffer.put(flagsOffset + i, world.dead[i] ? DEAD : 0);
+        }
+        LONGS.setRelease(buffer, SEQUENCE_OFFSET, sequence + 2);
+    }
+
+    /** reader side: waits out a tick being written, @return the stamp to {@link #validate} the reads with **/
+    public long beginRead() {
+        long sequence;
+        while (((sequence = (long) LONGS.getAcquire(buffer, SEQUENCE_OFFSET)) & 1) != 0) {
+            Thread.onSpinWait();
+        }
+        return sequence;
+    }
+
+    /** @return true if nothing was published since `stamp`, so the values read since are from one tick **/
+    public boolean validate(long stamp) {
+        VarHandle.loadLoadFence();
+        return (long) LONGS.getOpaque(buffer, SEQUENCE_OFFSET) == stamp;
+    }
+
+    public int size() {
+        return buffer.getInt(ENTITIES_OFFSET);
+    }
+
+    /** @return the tick the image holds, -1 before the first publish **/
+    public long tick() {
+        return buffer.getLong(TICK_OFFSET);
+    }
+
+    public double width() {
+        return buffer.getDouble(16);
+    }
+
+    public double height() {
+        return buffer.getDouble(24);
+    }
+
+    public double x(int i) {
+        return xs.get(i);
+    }
+
+    public double y(int i) {
+        return ys.get(i);
+    }
+
+    public double targetX(int i) {
+        return targetXs.get(i);
+    }
+
+    public double targetY(int i) {
+        return targetYs.get(i);
+    }
+
+    public double health(int i) {
+        return healths.get(i);
+    }
+
+    public boolean isDead(int i) {
+        return (buffer.get(flagsOffset + i) & DEAD) != 0;
+    }
+
+    /** writes the image of one tick to `file` in one bulk write, readable with {@link #open} **/
+    public void save(Path file) throws IOException {
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            while (true) {
+                long stamp = beginRead();
+                ByteBuffer image = buffer.duplicate().clear();
+                out.position(0);
+                while (image.hasRemaining()) {
+                    out.write(image);
+                }
+                if (validate(stamp)) return;
+                // a tick was published meanwhile, write again
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) channel.close(); // the mapping itself goes with the buffer
+    }
+
+    /** follows the image a match publishes to a file, from another process **/
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) throw new IllegalArgumentException("Usage: WorldImage file [--interval ms]");
+        Path file = Path.of(args[0]);
+        long interval = 1000;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--interval" -> interval = Long.parseLong(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+        try (WorldImage image = open(file)) {
+            long lastTick = -2;
+            while (true) {
+                long tick;
+                int alive;
+                int leader;
+                double totalHealth;
+                long stamp;
+                do {
+                    stamp = image.beginRead();
+                    tick = image.tick();
+                    alive = 0;
+                    leader = -1;
+                    totalHealth = 0;
+                    for (int i = 0; i < image.size(); i++) {
+                        if (image.isDead(i)) continue;
+                        alive++;
+                        totalHealth += image.health(i);
+                        if (leader == -1 || image.health(i) > image.health(leader)) leader = i;
+                    }
+                } while (!image.validate(stamp));
+                if (tick != lastTick) {
+                    System.out.printf(Locale.ROOT, "tick %d: %d alive, %.1f HP in total, healthiest %d%n", tick, alive, totalHealth, leader);
+                } else if (tick >= 0 && alive < 2) {
+                    return; // over, and nothing published since
+                }
+                lastTick = tick;
+                Thread.sleep(interval);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.bilante.fightgame;
+
+/**
+ * What the renderers need of one tick: the positions before and after it, for interpolation, and the HP.
+ * A snapshot is filled by one thread and only read by another once handed over, see {@link SimulationLoop}.
+ */
+public class WorldSnapshot {
+    int size = 0;
+    long tick = -1; // tick of the positions, -1 while never filled
+    long publishedAt; // System.nanoTime() at which the tick was published
+    double[] previousX = new double[0];
+    double[] previousY = new double[0];
+    double[] x = new double[0];
+    double[] y = new double[0];
+    double[] health = new double[0];
+    boolean[] dead = new boolean[0];
+
+    /** copies the positions of `world`, the tick is about to move them **/
+    void capturePrevious(WorldState world) {
+        ensureCapacity(world.size);
+        System.arraycopy(world.x, 0, previousX, 0, world.size);
+        System.arraycopy(world.y, 0, previousY, 0, world.size);
+    }
+
+    /** copies the state of `world` after tick `tick` **/
+    void capture(WorldState world, long tick) {
+        ensureCapacity(world.size);
+        size = world.size;
+        this.tick = tick;
+        System.arraycopy(world.x, 0, x, 0, size);
+        System.arraycopy(world.y, 0, y, 0, size);
+        System.arraycopy(world.health, 0, health, 0, size);
+        System.arraycopy(world.dead, 0, dead, 0, size);
+    }
+
+    /** copies `world` as a still frame, previous and current positions alike **/
+    void captureStill(WorldState world, long tick) {
+        capturePrevious(world);
+        capture(world, tick);
+        publishedAt = System.nanoTime();
+    }
+
+    /** @return x of entity `i` at `alpha` of the way from the previous tick to this one **/
+    double x(int i, double alpha) {
+        return previousX[i] + (x[i] - previousX[i]) * alpha;
+    }
+
+    double y(int i, double alpha) {
+        return previousY[i] + (y[i] - previousY[i]) * alpha;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (x.length >= capacity) return;
+        previousX = new double[capacity];
+        previousY = new double[capacity];
+        x = new double[capacity];
+        y = new double[capacity];
+        health = new double[capacity];
+        dead = new boolean[capacity];
+    }
+}
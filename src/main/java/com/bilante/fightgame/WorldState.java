@@ -0,0 +1,134 @@
+package com.bilante.fightgame;
+
+import java.util.Arrays;
+
+/**
+ * Entity state kept as primitive arrays indexed by entity id (structure of arrays).
+ * {@link GameBox} steps on these arrays only, so a tick allocates nothing.
+ * The per tick scratch arrays (lead vectors, intended steps, collisions) are sized with the entity arrays.
+ */
+public class WorldState {
+    int size = 0;
+
+    // entity state
+    double[] x;
+    double[] y;
+    double[] targetX;
+    double[] targetY;
+    double[] health;
+    double[] damage;
+    int[] speed;
+    long[] lastHit;
+    boolean[] dead;
+
+    // per tick scratch
+    double[] leadX;
+    double[] leadY;
+    double[] intendedX;
+    double[] intendedY;
+    boolean[] hasCollision;
+    double[] collisionX;
+    double[] collisionY;
+    /** -1 if wall collision, id of the other entity if not **/
+    int[] otherIndex;
+    /** id of the entity this one touches first during the step (lowest id on ties), Integer.MAX_VALUE if none **/
+    int[] contact;
+    /** fraction of the step at which `contact` is touched **/
+    double[] impactTime;
+    /** fraction of the step at which the entity stops, on its first wall or player **/
+    double[] stopTime;
+    /** damage of the contacts of the step, applied once they are all resolved **/
+    double[] damageTaken;
+    // middle of the path of the step, what the broad phase buckets
+    double[] midX;
+    double[] midY;
+
+    public WorldState() {
+        this(CONST.MAX_PLAYERS);
+    }
+
+    public WorldState(int capacity) {
+        allocate(Math.max(1, capacity));
+    }
+
+    /** @return the id of the new entity **/
+    public int add(double x, double y, double targetX, double targetY, double health, double damage, int speed, long lastHit) {
+        if (size == this.x.length) {
+            grow(size * 2);
+        }
+        int id = size++;
+        this.x[id] = x;
+        this.y[id] = y;
+        this.targetX[id] = targetX;
+        this.targetY[id] = targetY;
+        this.health[id] = health;
+        this.damage[id] = damage;
+        this.speed[id] = speed;
+        this.lastHit[id] = lastHit;
+        this.dead[id] = false;
+        return id;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() { return size; }
+
+    /** grows the arrays to hold `capacity` entities, keeping the state of the ones there **/
+    void ensureCapacity(int capacity) {
+        if (capacity > x.length) grow(capacity);
+    }
+
+    private void allocate(int capacity) {
+        x = new double[capacity];
+        y = new double[capacity];
+        targetX = new double[capacity];
+        targetY = new double[capacity];
+        health = new double[capacity];
+        damage = new double[capacity];
+        speed = new int[capacity];
+        lastHit = new long[capacity];
+        dead = new boolean[capacity];
+        leadX = new double[capacity];
+        leadY = new double[capacity];
+        intendedX = new double[capacity];
+        intendedY = new double[capacity];
+        hasCollision = new boolean[capacity];
+        collisionX = new double[capacity];
+        collisionY = new double[capacity];
+        otherIndex = new int[capacity];
+        contact = new int[capacity];
+        impactTime = new double[capacity];
+        stopTime = new double[capacity];
+        damageTaken = new double[capacity];
+        midX = new double[capacity];
+        midY = new double[capacity];
+    }
+
+    private void grow(int capacity) {
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        targetX = Arrays.copyOf(targetX, capacity);
+        targetY = Arrays.copyOf(targetY, capacity);
+        health = Arrays.copyOf(health, capacity);
+        damage = Arrays.copyOf(damage, capacity);
+        speed = Arrays.copyOf(speed, capacity);
+        lastHit = Arrays.copyOf(lastHit, capacity);
+        dead = Arrays.copyOf(dead, capacity);
+        leadX = new double[capacity];
+        leadY = new double[capacity];
+        intendedX = new double[capacity];
+        intendedY = new double[capacity];
+        hasCollision = new boolean[capacity];
+        collisionX = new double[capacity];
+        collisionY = new double[capacity];
+        otherIndex = new int[capacity];
+        contact = new int[capacity];
+        impactTime = new double[capacity];
+        stopTime = new double[capacity];
+        damageTaken = new double[capacity];
+        midX = new double[capacity];
+        midY = new double[capacity];
+    }
+}
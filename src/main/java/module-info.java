@@ -1,9 +1,11 @@
 module com.bilante.fightgame {
     requires javafx.controls;
     requires javafx.fxml;
-    requires java.sql;
     requires java.desktop;
     requires jdk.unsupported;
+    requires jdk.jfr;
+    requires jdk.management; // bytes allocated per thread, for the HUD
+    requires static jdk.incubator.vector; // the vector narrow phase, only when the JVM is started with it
 
 
     opens com.bilante.fightgame to javafx.fxml;
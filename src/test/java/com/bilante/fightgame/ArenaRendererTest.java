@@ -0,0 +1,55 @@
+package com.bilante.fightgame;
+
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ArenaRendererTest {
+
+    static ArenaRenderer withProperty(String name) {
+        String before = System.getProperty(ArenaRenderer.PROPERTY);
+        try {
+            if (name == null) {
+                System.clearProperty(ArenaRenderer.PROPERTY);
+            } else {
+                System.setProperty(ArenaRenderer.PROPERTY, name);
+            }
+            return ArenaRenderer.fromSettings();
+        } finally {
+            if (before == null) {
+                System.clearProperty(ArenaRenderer.PROPERTY);
+            } else {
+                System.setProperty(ArenaRenderer.PROPERTY, before);
+            }
+        }
+    }
+
+    @Test
+    void propertyPicksTheRenderer() {
+        assertInstanceOf(NodeRenderer.class, withProperty(null));
+        assertInstanceOf(NodeRenderer.class, withProperty("nodes"));
+        assertInstanceOf(CanvasRenderer.class, withProperty("canvas"));
+        assertThrows(IllegalArgumentException.class, () -> withProperty("circles"));
+    }
+
+    /**
+     * the canvas draws ids c, c + colors, c + 2 * colors... with the sprite of color c: the color the node renderer
+     * and the side panel give each of them, as long as the palette repeats every colors ids and has no duplicate
+     */
+    @Test
+    void paletteRepeatsEveryColorsIds() {
+        Color[] colors = UICONST.colors;
+        Set<Color> distinct = new HashSet<>(List.of(colors));
+        assertEquals(colors.length, distinct.size(), "a color twice in the palette");
+        for (int id = 0; id < 10 * colors.length; id++) {
+            assertEquals(colors[id % colors.length], UICONST.color(id), "color of " + id);
+        }
+    }
+}
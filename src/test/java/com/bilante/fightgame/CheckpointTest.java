@@ -0,0 +1,61 @@
+package com.bilante.fightgame;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CheckpointTest {
+
+    @Test
+    void forkPlaysTheSameContinuationAsTheOriginal() {
+        for (int index = 0; index < 40; index++) {
+            List<SidePanel.PlayerInput> roster = MatchTest.roster(index);
+            long seed = MatchRandom.seedFor(24, index);
+            Match.MatchResult uninterrupted = new Match(roster, seed).run();
+
+            Match interrupted = new Match(roster, seed);
+            for (int tick = 0; tick < 60 + index * 20 && interrupted.isRunning(); tick++) {
+                interrupted.tick();
+            }
+            Checkpoint checkpoint = interrupted.checkpoint();
+            Match.MatchResult fork = new Match(checkpoint).run();
+            Match.MatchResult secondFork = new Match(checkpoint).run();
+            Match.MatchResult original = interrupted.run();
+
+            MatchTest.assertSameResult(uninterrupted, original);
+            MatchTest.assertSameResult(uninterrupted, fork);
+            MatchTest.assertSameResult(uninterrupted, secondFork);
+        }
+    }
+
+    @Test
+    void reseededForksTakeOtherWays() {
+        int differing = 0;
+        for (int index = 0; index < 20; index++) {
+            Match match = new Match(MatchTest.roster(index), MatchRandom.seedFor(24, index));
+            match.tick();
+            Checkpoint checkpoint = match.checkpoint();
+            if (new Match(checkpoint, 1).run().ticks() != new Match(checkpoint, 2).run().ticks()) differing++;
+        }
+        assertTrue(differing > 10, differing + " of 20 reseeded forks differ");
+    }
+
+    @Test
+    void restoreRewindsAnArena() {
+        GameBox gameBox = new Match(MatchTest.roster(3), 7).gameBox;
+        Checkpoint checkpoint = gameBox.checkpoint(CONST.FIXED_STEP);
+        double[] start = gameBox.world.x.clone();
+        for (int tick = 0; tick < 120; tick++) {
+            gameBox.step(CONST.FIXED_STEP);
+        }
+        assertNotEquals(start[0], gameBox.world.x[0]);
+        gameBox.restore(checkpoint);
+        Checkpoint again = gameBox.checkpoint(CONST.FIXED_STEP);
+        assertTrue(Arrays.equals(checkpoint.x, again.x) && checkpoint.ticks == again.ticks
+                && checkpoint.randomState == again.randomState);
+    }
+}
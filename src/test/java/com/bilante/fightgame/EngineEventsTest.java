@@ -0,0 +1,67 @@
+package com.bilante.fightgame;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EngineEventsTest {
+
+    @TempDir
+    Path directory;
+
+    /** a recording of a whole match has a tick event per tick, a death per player killed and the damage of every hit **/
+    @Test
+    void recordingFollowsTheMatch() throws Exception {
+        List<SidePanel.PlayerInput> roster = MatchTest.roster(3);
+        Match match = new Match(roster, MatchRandom.seedFor(14, 0));
+        Path file = directory.resolve("match.jfr");
+        Match.MatchResult result;
+        try (Recording recording = new Recording()) {
+            recording.enable("com.bilante.fightgame.Tick").withThreshold(Duration.ZERO);
+            recording.enable("com.bilante.fightgame.Hit");
+            recording.enable("com.bilante.fightgame.WallBounce");
+            recording.enable("com.bilante.fightgame.Death");
+            recording.start();
+            result = match.run();
+            recording.stop();
+            recording.dump(file);
+        }
+
+        long ticks = 0;
+        long bounces = 0;
+        int deaths = 0;
+        double[] damage = new double[roster.size()];
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            switch (event.getEventType().getName()) {
+                case "com.bilante.fightgame.Tick" -> ticks++;
+                case "com.bilante.fightgame.WallBounce" -> bounces++;
+                case "com.bilante.fightgame.Hit" -> damage[event.getInt("player")] += event.getDouble("damage");
+                case "com.bilante.fightgame.Death" -> {
+                    int player = event.getInt("player");
+                    assertEquals(Math.round(result.deathTimes()[player] / CONST.FIXED_STEP), event.getLong("tick"));
+                    deaths++;
+                }
+                default -> { }
+            }
+        }
+        assertEquals(result.ticks(), ticks);
+        assertTrue(bounces > 0, "no wall bounce");
+        int killed = 0;
+        for (int p = 0; p < roster.size(); p++) {
+            if (!Double.isNaN(result.deathTimes()[p])) killed++;
+            double lost = CONST.healthFromPoints(roster.get(p).healthPoints) - match.gameBox.world.health[p];
+            assertEquals(lost, damage[p], 1e-9, "damage taken by player " + p);
+        }
+        assertTrue(killed > 0, "nobody died");
+        assertEquals(killed, deaths);
+    }
+}
@@ -0,0 +1,293 @@
+package com.bilante.fightgame;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class GameBoxTest {
+
+    static GameBox arena() {
+        GameBox gameBox = new GameBox(CONST.GAME_WIDTH, CONST.GAME_HEIGHT, 19);
+        gameBox.mirrorPlayers = false;
+        return gameBox;
+    }
+
+    /** adds a player on (x, y) running to (targetX, targetY) **/
+    static int add(GameBox gameBox, double health, double damage, int speed,
+                   double x, double y, double targetX, double targetY) {
+        int id = gameBox.addPlayer("p", health, damage, speed).id;
+        WorldState w = gameBox.world;
+        w.x[id] = x;
+        w.y[id] = y;
+        w.targetX[id] = targetX;
+        w.targetY[id] = targetY;
+        return id;
+    }
+
+    /** three players overlapping and closing in on the same point make three pairs, each dealing both ways **/
+    @Test
+    void pileUpOfThreeHurtsEveryPair() {
+        GameBox gameBox = arena();
+        for (int p = 0; p < 3; p++) {
+            double angle = 2 * Math.PI * p / 3;
+            double dx = Math.cos(angle);
+            double dy = Math.sin(angle);
+            add(gameBox, 10, 1 << p, 100, 250 + 10 * dx, 250 + 10 * dy, 250 - 200 * dx, 250 - 200 * dy);
+        }
+        gameBox.step(CONST.FIXED_STEP);
+        assertEquals(3, gameBox.contactPairs);
+        for (int p = 0; p < 3; p++) {
+            assertTrue(gameBox.counts(p), "pair " + p);
+        }
+        double[] health = gameBox.world.health;
+        assertEquals(10 - 2 - 4, health[0]);
+        assertEquals(10 - 1 - 4, health[1]);
+        assertEquals(10 - 1 - 2, health[2]);
+    }
+
+    @Test
+    void equalStampsHurtBothPlayers() {
+        GameBox gameBox = arena();
+        add(gameBox, 10, 1, 100, 238, 250, 400, 250);
+        add(gameBox, 10, 3, 100, 262, 250, 100, 250);
+        gameBox.ticks = 10;
+        gameBox.world.lastHit[0] = 4;
+        gameBox.world.lastHit[1] = 4;
+        gameBox.step(CONST.FIXED_STEP);
+        assertEquals(7, gameBox.world.health[0]);
+        assertEquals(9, gameBox.world.health[1]);
+        assertEquals(11, gameBox.world.lastHit[0]);
+        assertEquals(11, gameBox.world.lastHit[1]);
+    }
+
+    /** the player who bounced more recently takes nothing, the other takes its damage **/
+    @Test
+    void laterStampSparesItsPlayer() {
+        GameBox gameBox = arena();
+        add(gameBox, 10, 1, 100, 238, 250, 400, 250);
+        add(gameBox, 10, 3, 100, 262, 250, 100, 250);
+        gameBox.ticks = 10;
+        gameBox.world.lastHit[0] = 6;
+        gameBox.world.lastHit[1] = 4;
+        gameBox.step(CONST.FIXED_STEP);
+        assertEquals(10, gameBox.world.health[0]);
+        assertEquals(9, gameBox.world.health[1]);
+    }
+
+    @Test
+    void deadPartnerDealsNothing() {
+        GameBox gameBox = arena();
+        add(gameBox, 10, 1, 100, 238, 250, 400, 250);
+        add(gameBox, 0, 3, 100, 262, 250, 100, 250); // enters dead
+        add(gameBox, 10, 1, 100, 50, 50, 50, 400); // keeps the match going
+        gameBox.step(CONST.FIXED_STEP);
+        assertEquals(1, gameBox.contactPairs);
+        assertTrue(gameBox.counts(0));
+        assertEquals(10, gameBox.world.health[0]);
+        assertTrue(gameBox.world.hasCollision[0], "it still bounces off the body");
+    }
+
+    /**
+     * a stops on the wall a fifth into the step, b only reaches the path of a past half of it: b bounces off a,
+     * nobody is hurt
+     */
+    @Test
+    void contactAfterAStopDoesNotCount() {
+        GameBox gameBox = arena();
+        int a = add(gameBox, 10, 1, 100, 486, 250, 600, 250); // 10 px into a wall 2 px away
+        int b = add(gameBox, 10, 1, 500, 440, 250, 600, 250); // 50 px, on a from 22 px on
+        gameBox.step(0.1);
+        assertEquals(1, gameBox.contactPairs);
+        assertFalse(gameBox.counts(0));
+        WorldState w = gameBox.world;
+        assertEquals(0.2, w.stopTime[a], 1e-9);
+        assertEquals(-1, w.otherIndex[a]);
+        assertEquals(a, w.otherIndex[b]);
+        assertEquals(10, w.health[a]);
+        assertEquals(10, w.health[b]);
+    }
+
+    /** each runs 150 px in a step that starts them 100 px apart: an end of step overlap test sees them pass **/
+    @Test
+    void fastPlayersMeetInsteadOfPassingThrough() {
+        GameBox gameBox = arena();
+        int a = add(gameBox, 10, 1, 600, 100, 250, 480, 250);
+        int b = add(gameBox, 10, 1, 600, 200, 250, 20, 250);
+        gameBox.step(0.25);
+        WorldState w = gameBox.world;
+        assertEquals(1, gameBox.contactPairs);
+        assertEquals(b, w.otherIndex[a]);
+        assertEquals(a, w.otherIndex[b]);
+        assertEquals(76 / 300.0, w.stopTime[a], 1e-9); // 76 px to go before touching, closing 300 px a step
+        assertEquals(138, w.x[a], 1e-9);
+        assertEquals(162, w.x[b], 1e-9);
+        assertEquals(9, w.health[a]);
+        assertEquals(9, w.health[b]);
+    }
+
+    /** a run of 200 px toward a wall 38 px away stops on it instead of leaving the arena **/
+    @Test
+    void fastPlayerStopsOnTheWall() {
+        GameBox gameBox = arena();
+        int a = add(gameBox, 10, 1, 2000, 450, 250, 5000, 250);
+        add(gameBox, 10, 1, 100, 50, 50, 50, 400);
+        gameBox.step(0.1);
+        WorldState w = gameBox.world;
+        assertTrue(w.hasCollision[a]);
+        assertEquals(-1, w.otherIndex[a]);
+        assertEquals(0.19, w.stopTime[a], 1e-9);
+        assertEquals(CONST.GAME_WIDTH - CONST.PLAYER_RADIUS, w.x[a], 1e-9);
+    }
+
+    /** two players standing on each other and moving apart are let go, the same pair closing in touches at once **/
+    @Test
+    void overlappingPairMovingApartIsLetGo() {
+        double minSquaredDistance = 4 * CONST.PLAYER_RADIUS * CONST.PLAYER_RADIUS;
+        assertTrue(GameBox.impactTime(-10, 0, -5, 0, minSquaredDistance) > 1);
+        assertEquals(0, GameBox.impactTime(-10, 0, 5, 0, minSquaredDistance));
+
+        GameBox gameBox = arena();
+        int a = add(gameBox, 10, 1, 100, 245, 250, 20, 250);
+        int b = add(gameBox, 10, 1, 100, 255, 250, 480, 250);
+        gameBox.step(CONST.FIXED_STEP);
+        WorldState w = gameBox.world;
+        assertEquals(0, gameBox.contactPairs);
+        assertFalse(w.hasCollision[a]);
+        assertFalse(w.hasCollision[b]);
+        assertEquals(10, w.health[a]);
+        assertEquals(10, w.health[b]);
+    }
+
+    /** @return the winner of every game over event `gameBox` fires from now on **/
+    static List<Integer> gameOvers(GameBox gameBox) {
+        List<Integer> winners = new ArrayList<>();
+        gameBox.addListener(new GameListener() {
+            @Override
+            public void onGameOver(int winnerId) {
+                winners.add(winnerId);
+            }
+        });
+        return winners;
+    }
+
+    /** a player entering dead never counts, the last one standing wins once, however long the arena goes on **/
+    @Test
+    void lastPlayerStandingWinsOnce() {
+        GameBox gameBox = arena();
+        add(gameBox, 10, 5, 100, 238, 250, 400, 250);
+        add(gameBox, 0, 1, 100, 50, 50, 50, 400); // enters dead
+        int b = add(gameBox, 1, 1, 100, 262, 250, 100, 250);
+        List<Integer> winners = gameOvers(gameBox);
+        assertEquals(2, gameBox.aliveCount());
+        assertEquals(-1, gameBox.survivor());
+        assertFalse(gameBox.isOver());
+        gameBox.step(CONST.FIXED_STEP);
+        assertTrue(gameBox.world.dead[b]);
+        assertEquals(1, gameBox.aliveCount());
+        assertEquals(0, gameBox.survivor());
+        assertTrue(gameBox.isOver());
+        for (int tick = 0; tick < 100; tick++) {
+            gameBox.step(CONST.FIXED_STEP);
+        }
+        assertEquals(List.of(0), winners);
+    }
+
+    @Test
+    void playersDyingTogetherLeaveNoWinner() {
+        GameBox gameBox = arena();
+        add(gameBox, 1, 5, 100, 238, 250, 400, 250);
+        add(gameBox, 1, 5, 100, 262, 250, 100, 250);
+        List<Integer> winners = gameOvers(gameBox);
+        gameBox.step(CONST.FIXED_STEP);
+        assertEquals(0, gameBox.aliveCount());
+        assertEquals(-1, gameBox.survivor());
+        assertTrue(gameBox.isOver());
+        assertEquals(List.of(-1), winners);
+    }
+
+    /** @return "id: old -> new" for every HP change `gameBox` reports from now on **/
+    static List<String> healthChanges(GameBox gameBox) {
+        List<String> changes = new ArrayList<>();
+        gameBox.addListener(new GameListener() {
+            @Override
+            public void onHealthChanged(int id, double oldHealth, double newHealth) {
+                changes.add(id + ": " + oldHealth + " -> " + newHealth);
+            }
+        });
+        return changes;
+    }
+
+    /** a pile-up reports one change per player with the damage of all its pairs summed, a harmless contact none **/
+    @Test
+    void healthChangesOncePerPlayerAndTick() {
+        GameBox gameBox = arena();
+        for (int p = 0; p < 3; p++) {
+            double angle = 2 * Math.PI * p / 3;
+            double dx = Math.cos(angle);
+            double dy = Math.sin(angle);
+            add(gameBox, 10, 1 << p, 100, 250 + 10 * dx, 250 + 10 * dy, 250 - 200 * dx, 250 - 200 * dy);
+        }
+        add(gameBox, 10, 0, 100, 50, 238, 50, 400); // a pair dealing no damage
+        add(gameBox, 10, 0, 100, 50, 262, 50, 100);
+        List<String> changes = healthChanges(gameBox);
+        gameBox.step(CONST.FIXED_STEP);
+        assertTrue(gameBox.world.hasCollision[3]);
+        assertTrue(gameBox.world.hasCollision[4]);
+        assertEquals(List.of("0: 10.0 -> 4.0", "1: 10.0 -> 5.0", "2: 10.0 -> 7.0"), changes.stream().sorted().toList());
+    }
+
+    /** once its scratch arrays have grown, ticks of a crowded arena allocate nothing on the stepping thread **/
+    @Test
+    void tickAllocatesNothing() {
+        assumeTrue(TickStats.countsAllocations(), "the JVM doesn't count allocations per thread");
+        GameBox gameBox = NarrowPhaseTest.arena(2000, 0.3, 2, new NarrowPhase());
+        for (int tick = 0; tick < 300; tick++) {
+            gameBox.step(CONST.FIXED_STEP);
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int tick = 0; tick < 300; tick++) {
+            gameBox.step(CONST.FIXED_STEP);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        // not quite 0: the JDK loads a class the first time Arrays.sort takes one of its rarer paths
+        assertTrue(allocated < 1024, allocated + " bytes allocated by 300 ticks of 2000 players");
+    }
+
+    /** the benchmark arenas: players on a grid start inside the arena and apart, up to 30% of it covered **/
+    @Test
+    void playersOnAGridStartApart() {
+        double radius = CONST.PLAYER_RADIUS;
+        for (int count : new int[] {5, 17, 1000}) {
+            for (double density : new double[] {0.01, 0.3}) {
+                double area = count * Math.PI * radius * radius / density;
+                for (double aspect : new double[] {1, 3}) { // square, then three times as wide as high
+                    double height = Math.sqrt(area / aspect);
+                    GameBox gameBox = new GameBox(aspect * height, height, 4);
+                    gameBox.mirrorPlayers = false;
+                    for (int i = 0; i < count; i++) {
+                        gameBox.addPlayer("p", 10, 1, 100);
+                    }
+                    gameBox.placePlayersOnGrid();
+                    WorldState w = gameBox.world;
+                    String at = count + " players, density " + density + ", aspect " + aspect;
+                    for (int a = 0; a < count; a++) {
+                        assertTrue(w.x[a] >= radius && w.x[a] <= gameBox.width - radius, at + ": x of " + a);
+                        assertTrue(w.y[a] >= radius && w.y[a] <= gameBox.height - radius, at + ": y of " + a);
+                        for (int b = a + 1; b < count; b++) {
+                            assertTrue(Math.hypot(w.x[a] - w.x[b], w.y[a] - w.y[b]) >= 2 * radius,
+                                    at + ": " + a + " on " + b);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.bilante.fightgame;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HealthRankingTest {
+
+    /** @return the ids by HP, the healthiest first and the lowest id first on ties, sorted from scratch **/
+    static int[] sorted(double[] health) {
+        return IntStream.range(0, health.length).boxed()
+                .sorted(Comparator.<Integer>comparingDouble(id -> -health[id]).thenComparing(id -> id))
+                .mapToInt(Integer::intValue).toArray();
+    }
+
+    @Test
+    void batchOfSeveralChangesKeepsTheOrder() {
+        HealthRanking ranking = new HealthRanking(new double[] {10, 9, 8});
+        assertTrue(ranking.report(0, 5));
+        assertFalse(ranking.report(1, 4), "one drain per batch");
+        assertEquals(2, ranking.drain());
+        assertArrayEquals(new int[] {2, 0, 1}, ranking.order);
+        assertArrayEquals(new int[] {1, 2, 0}, ranking.rank);
+    }
+
+    /** batches of random HP changes, repeated ids included, against a full sort after every drain **/
+    @Test
+    void randomBatchesMatchAFullSort() {
+        MatchRandom random = new MatchRandom(18);
+        int n = 200;
+        double[] health = new double[n];
+        for (int i = 0; i < n; i++) {
+            health[i] = 1 + (int) (random.nextDouble() * 10);
+        }
+        HealthRanking ranking = new HealthRanking(health);
+        assertArrayEquals(sorted(health), ranking.order);
+        for (int batch = 0; batch < 300; batch++) {
+            int changes = 1 + (int) (random.nextDouble() * 40);
+            for (int c = 0; c < changes; c++) {
+                int id = (int) (random.nextDouble() * n);
+                health[id] = Math.round((health[id] - random.nextDouble() * 3) * 4) / 4.0; // ties on purpose
+                ranking.report(id, health[id]);
+            }
+            ranking.drain();
+            assertArrayEquals(health, ranking.health, "batch " + batch);
+            int[] expected = sorted(health);
+            assertArrayEquals(expected, ranking.order, "batch " + batch);
+            for (int r = 0; r < n; r++) {
+                assertEquals(r, ranking.rank[expected[r]]);
+            }
+        }
+    }
+
+    @Test
+    void drainWithNothingReportedChangesNothing() {
+        HealthRanking ranking = new HealthRanking(new double[] {3, 7, 7});
+        int[] before = ranking.order.clone();
+        assertEquals(0, ranking.drain());
+        assertArrayEquals(before, ranking.order);
+    }
+}
@@ -0,0 +1,84 @@
+package com.bilante.fightgame;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KineticEngineTest {
+
+    /** seeds no single match decides: a seed plays another match on each engine, only the outcome rates compare **/
+    static final int SEEDS = 1000;
+    /** standard errors two rates of one roster may be apart **/
+    static final double MAX_Z = 3.5;
+
+    /** @return how many of SEEDS matches of `roster` end in a draw (0) or won by each player (1 on) **/
+    static int[] outcomes(List<SidePanel.PlayerInput> roster, boolean kinetic) {
+        int[] counts = new int[roster.size() + 1];
+        for (int s = 0; s < SEEDS; s++) {
+            Match match = new Match(roster, MatchRandom.seedFor(12, s));
+            if (kinetic) match.kinetic();
+            counts[match.run().winnerIndex() + 1]++;
+        }
+        return counts;
+    }
+
+    static void assertSameRates(List<SidePanel.PlayerInput> roster) {
+        int[] tick = outcomes(roster, false);
+        int[] kinetic = outcomes(roster, true);
+        for (int o = 0; o < tick.length; o++) {
+            double pooled = (tick[o] + kinetic[o]) / (2.0 * SEEDS);
+            if (pooled == 0 || pooled == 1) continue;
+            double z = (kinetic[o] - tick[o]) / (double) SEEDS / Math.sqrt(pooled * (1 - pooled) * 2 / SEEDS);
+            String outcome = o == 0 ? "draws" : "wins of player " + (o - 1);
+            assertTrue(Math.abs(z) <= MAX_Z, String.format("%s of %s: %d on the tick engine, %d on the kinetic one,"
+                    + " z %.1f", outcome, splits(roster), tick[o], kinetic[o], z));
+        }
+    }
+
+    static String splits(List<SidePanel.PlayerInput> roster) {
+        StringBuilder text = new StringBuilder();
+        for (SidePanel.PlayerInput input : roster) {
+            text.append(text.isEmpty() ? "" : " v ");
+            text.append(input.damagePoints).append(input.speedPoints).append(input.healthPoints);
+        }
+        return text.toString();
+    }
+
+    /** the underdog of a lopsided duel keeps its few wins and draws **/
+    @Test
+    void lopsidedDuelKeepsItsUpsets() {
+        assertSameRates(MatchCacheTest.roster(new int[] {6, 1, 3}, new int[] {2, 5, 3}));
+    }
+
+    /**
+     * rosters of 2 to 5 players; those fielding one split twice are left out, their players open in perfect symmetry
+     * every seed and only the rounding of each engine breaks it
+     */
+    @Test
+    void winRatesAgreeWithTheTickEngine() {
+        int compared = 0;
+        for (int index = 0; compared < 12; index++) {
+            List<SidePanel.PlayerInput> roster = MatchTest.roster(index);
+            List<String> distinct = new ArrayList<>();
+            for (SidePanel.PlayerInput input : roster) distinct.add(splits(List.of(input)));
+            if (new HashSet<>(distinct).size() < roster.size()) continue;
+            assertSameRates(roster);
+            compared++;
+        }
+    }
+
+    /** a crowd standing on each other keeps its contacts once instead of meeting again at the same instant **/
+    @Test
+    void pileUpMovesOn() {
+        GameBox gameBox = NarrowPhaseTest.arena(60, 3, 8, new NarrowPhase());
+        KineticEngine engine = new KineticEngine(gameBox, CONST.FIXED_STEP);
+        for (int event = 0; event < 20_000 && engine.time < 1; event++) {
+            engine.advance(engine.nextEventTime());
+        }
+        assertTrue(engine.time >= 1, "stuck at " + engine.time + " s after " + engine.events + " events");
+    }
+}
@@ -0,0 +1,150 @@
+package com.bilante.fightgame;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MatchCacheTest {
+
+    @TempDir
+    Path directory;
+
+    static List<SidePanel.PlayerInput> roster(int[]... splits) {
+        List<SidePanel.PlayerInput> roster = new ArrayList<>();
+        for (int[] split : splits) {
+            roster.add(new SidePanel.PlayerInput(split[0], split[1], split[2]));
+        }
+        return roster;
+    }
+
+    static void assertPinned(List<SidePanel.PlayerInput> roster, boolean kinetic, int winner, long ticks, double... health) {
+        Match match = new Match(roster, 42);
+        if (kinetic) match.kinetic();
+        Match.MatchResult result = match.run();
+        String message = "the engine plays a pinned match differently: bump MatchCache.ENGINE_REVISION, then update the pins";
+        assertEquals(winner, result.winnerIndex(), message);
+        assertEquals(ticks, result.ticks(), message);
+        assertArrayEquals(health, result.finalHealth(), message);
+    }
+
+    /** cached results are only valid while these play the same, see {@link MatchCache#ENGINE_REVISION} **/
+    @Test
+    void pinnedMatchesPlayTheSameUnderThisEngineRevision() {
+        assertEquals(4, MatchCache.ENGINE_REVISION, "new revision: update the pins below to what the engine plays now");
+        List<SidePanel.PlayerInput> duel = roster(new int[] {5, 2, 3}, new int[] {2, 5, 3});
+        List<SidePanel.PlayerInput> lopsided = roster(new int[] {6, 1, 3}, new int[] {2, 5, 3});
+        List<SidePanel.PlayerInput> three = roster(new int[] {4, 3, 3}, new int[] {3, 3, 4}, new int[] {1, 2, 7});
+        List<SidePanel.PlayerInput> five = roster(new int[] {3, 3, 4}, new int[] {6, 0, 4}, new int[] {2, 5, 3},
+                new int[] {4, 3, 3}, new int[] {1, 8, 1});
+        assertPinned(duel, false, 0, 3942, 0.6799999999999997, 0);
+        assertPinned(lopsided, false, 0, 5270, 0.38999999999999974, 0);
+        assertPinned(three, false, 1, 33732, 0, 0.17999999999999997, 0);
+        assertPinned(five, false, 1, 12118, 0, 0.5399999999999998, 0, 0, 0);
+        assertPinned(duel, true, 0, 83, 0.6799999999999997, 0);
+        assertPinned(lopsided, true, 0, 96, 0.38999999999999974, 0);
+        assertPinned(three, true, -1, 957, 0, 0.32999999999999996, 1.8199999999999996);
+        assertPinned(five, true, 1, 573, 0, 0.08999999999999986, 0, 0, 0);
+    }
+
+    @Test
+    void refusesAFileItDidNotWrite() throws IOException {
+        Path csv = directory.resolve("results.csv");
+        Files.writeString(csv, "match,round,seed,first,second,winner\n0,0,42,0,1,1\n");
+        byte[] before = Files.readAllBytes(csv);
+        assertThrows(IOException.class, () -> new MatchCache(16, csv));
+        assertArrayEquals(before, Files.readAllBytes(csv));
+    }
+
+    @Test
+    void startsOverOnACacheOfAnotherVersion() throws IOException {
+        Path file = directory.resolve("old.cache");
+        ByteBuffer header = ByteBuffer.allocate(MatchCache.HEADER_SIZE + 8).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MatchCache.MAGIC).putInt(MatchCache.VERSION - 1).putLong(MatchCache.RULES).putLong(7);
+        Files.write(file, header.array());
+        new MatchCache(16, file).close();
+        assertEquals(MatchCache.HEADER_SIZE, Files.size(file));
+    }
+
+    @Test
+    void readsBackEveryResultOfABigFile() throws IOException {
+        Path file = directory.resolve("many.cache");
+        List<SidePanel.PlayerInput> duel = roster(new int[] {5, 2, 3}, new int[] {2, 5, 3});
+        int matches = 4000; // well past one read chunk
+        List<Match.MatchResult> played = new ArrayList<>();
+        try (MatchCache cache = new MatchCache(16, file)) {
+            for (int seed = 0; seed < matches; seed++) {
+                played.add(cache.run(duel, seed, CONST.FIXED_STEP, true));
+            }
+        }
+        try (MatchCache cache = new MatchCache(16, file)) {
+            for (int seed = 0; seed < matches; seed++) {
+                Match.MatchResult result = cache.run(duel, seed, CONST.FIXED_STEP, true);
+                assertEquals(played.get(seed).ticks(), result.ticks());
+                assertArrayEquals(played.get(seed).finalHealth(), result.finalHealth());
+            }
+            assertEquals(matches, cache.hits());
+            assertEquals(0, cache.misses());
+        }
+    }
+
+    @Test
+    void keepsRostersOfMoreThan255Players() throws IOException {
+        Path file = directory.resolve("big.cache");
+        List<SidePanel.PlayerInput> roster = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            roster.add(i == 20 || i == 290 ? new SidePanel.PlayerInput(5, 2, 3) : new SidePanel.PlayerInput(0, 0, 0));
+        }
+        List<SidePanel.PlayerInput> duel = roster(new int[] {5, 2, 3}, new int[] {2, 5, 3});
+        Match.MatchResult big;
+        Match.MatchResult after;
+        try (MatchCache cache = new MatchCache(16, file)) {
+            big = cache.run(roster, 1, CONST.FIXED_STEP, false);
+            after = cache.run(duel, 1, CONST.FIXED_STEP, false);
+        }
+        try (MatchCache cache = new MatchCache(16, file)) {
+            Match.MatchResult bigAgain = cache.run(roster, 1, CONST.FIXED_STEP, false);
+            Match.MatchResult afterAgain = cache.run(duel, 1, CONST.FIXED_STEP, false);
+            assertEquals(2, cache.hits());
+            assertEquals(big.winnerIndex(), bigAgain.winnerIndex());
+            assertArrayEquals(big.finalHealth(), bigAgain.finalHealth());
+            assertEquals(after.ticks(), afterAgain.ticks());
+        }
+    }
+
+    /** keys one field apart, reopened from the file: each reads back its own record **/
+    @Test
+    void neighbourKeysKeepTheirOwnResults() throws IOException {
+        Path file = directory.resolve("neighbours.cache");
+        List<SidePanel.PlayerInput> duel = roster(new int[] {5, 2, 3}, new int[] {2, 5, 3});
+        List<SidePanel.PlayerInput> swapped = roster(new int[] {2, 5, 3}, new int[] {5, 2, 3});
+        List<Match.MatchResult> played = new ArrayList<>();
+        try (MatchCache cache = new MatchCache(16, file)) {
+            played.add(cache.run(duel, 3, CONST.FIXED_STEP, false));
+            played.add(cache.run(swapped, 3, CONST.FIXED_STEP, false));
+            played.add(cache.run(duel, 4, CONST.FIXED_STEP, false));
+            played.add(cache.run(duel, 3, 0.05, false));
+            played.add(cache.run(duel, 3, CONST.FIXED_STEP, true));
+        }
+        try (MatchCache cache = new MatchCache(16, file)) {
+            List<Match.MatchResult> read = List.of(cache.run(duel, 3, CONST.FIXED_STEP, false),
+                    cache.run(swapped, 3, CONST.FIXED_STEP, false), cache.run(duel, 4, CONST.FIXED_STEP, false),
+                    cache.run(duel, 3, 0.05, false), cache.run(duel, 3, CONST.FIXED_STEP, true));
+            assertEquals(5, cache.hits());
+            for (int i = 0; i < read.size(); i++) {
+                assertEquals(played.get(i).ticks(), read.get(i).ticks(), "key " + i);
+                assertArrayEquals(played.get(i).finalHealth(), read.get(i).finalHealth(), "key " + i);
+            }
+        }
+    }
+}
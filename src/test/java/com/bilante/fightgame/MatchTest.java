@@ -0,0 +1,101 @@
+package com.bilante.fightgame;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatchTest {
+
+    /** rosters of 2 to 5 players drawn from every legal split, the same ones every run **/
+    static List<SidePanel.PlayerInput> roster(int index) {
+        List<SidePanel.PlayerInput> splits = Tournament.allSplits();
+        int players = 2 + index % 4;
+        SidePanel.PlayerInput[] roster = new SidePanel.PlayerInput[players];
+        for (int p = 0; p < players; p++) {
+            roster[p] = splits.get((int) Math.floorMod(MatchRandom.seedFor(index, p), (long) splits.size()));
+        }
+        return List.of(roster);
+    }
+
+    static void assertSameResult(Match.MatchResult expected, Match.MatchResult actual) {
+        assertEquals(expected.winnerIndex(), actual.winnerIndex(), "winner");
+        assertEquals(expected.ticks(), actual.ticks(), "ticks");
+        assertEquals(expected.duration(), actual.duration(), "duration");
+        assertArrayEquals(expected.finalHealth(), actual.finalHealth(), "final HP");
+        assertArrayEquals(expected.deathTimes(), actual.deathTimes(), "death times");
+    }
+
+    @Test
+    void sameRosterAndSeedPlayTheSameMatch() {
+        for (int index = 0; index < 40; index++) {
+            List<SidePanel.PlayerInput> roster = roster(index);
+            long seed = MatchRandom.seedFor(6, index);
+            assertSameResult(new Match(roster, seed).run(), new Match(roster, seed).run());
+        }
+    }
+
+    @Test
+    void sameRosterAndSeedPlayTheSameKineticMatch() {
+        for (int index = 0; index < 40; index++) {
+            List<SidePanel.PlayerInput> roster = roster(index);
+            long seed = MatchRandom.seedFor(6, index);
+            assertSameResult(new Match(roster, seed).kinetic().run(), new Match(roster, seed).kinetic().run());
+        }
+    }
+
+    /** the kinetic engine tests every pair on every event, a crowd stays on the tick engine **/
+    @Test
+    void crowdIsNotPlayedKinetic() {
+        SidePanel.PlayerInput split = Tournament.allSplits().get(0);
+        new Match(Collections.nCopies(KineticEngine.MAX_PLAYERS, split), 1).kinetic();
+        Match crowd = new Match(Collections.nCopies(KineticEngine.MAX_PLAYERS + 1, split), 1);
+        assertThrows(IllegalStateException.class, crowd::kinetic);
+    }
+
+    /** stepping a match tick by tick plays the same match as run(), and its result holds together **/
+    @Test
+    void steppedMatchEndsLikeARun() {
+        for (int index = 0; index < 20; index++) {
+            List<SidePanel.PlayerInput> roster = roster(index);
+            long seed = MatchRandom.seedFor(1, index);
+            Match stepped = new Match(roster, seed);
+            while (stepped.isRunning()) {
+                stepped.tick();
+            }
+            Match.MatchResult result = stepped.result();
+            assertSameResult(new Match(roster, seed).run(), result);
+            assertEquals(seed, result.seed());
+            assertEquals(result.ticks() * CONST.FIXED_STEP, result.duration(), 1e-9);
+            assertTrue(result.duration() <= Match.MAX_DURATION + CONST.FIXED_STEP);
+            int alive = 0;
+            for (int p = 0; p < roster.size(); p++) {
+                boolean dead = !Double.isNaN(result.deathTimes()[p]);
+                if (dead) {
+                    assertEquals(0, result.finalHealth()[p], "HP of a dead player");
+                    assertTrue(result.deathTimes()[p] <= result.duration());
+                } else {
+                    assertTrue(result.finalHealth()[p] > 0, "HP of a player alive");
+                    alive++;
+                }
+            }
+            if (result.winnerIndex() == -1) {
+                assertTrue(alive != 1, "a draw with a single player alive");
+            } else {
+                assertEquals(1, alive);
+                assertTrue(Double.isNaN(result.deathTimes()[result.winnerIndex()]), "the winner died");
+                assertEquals(roster.get(result.winnerIndex()).name, result.winnerName());
+            }
+        }
+    }
+
+    @Test
+    void matchNeedsTwoPlayers() {
+        assertThrows(IllegalArgumentException.class, () -> new Match(roster(0).subList(0, 1), 1));
+    }
+}
@@ -0,0 +1,54 @@
+package com.bilante.fightgame;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class NarrowPhaseTest {
+
+    /** `count` players spread at random, `density` circles per circle area of the arena, sparse to overlapping **/
+    static GameBox arena(int count, double density, long seed, NarrowPhase kernel) {
+        double radius = CONST.PLAYER_RADIUS;
+        double side = Math.sqrt(count * Math.PI * radius * radius / density);
+        GameBox gameBox = new GameBox(side, side, seed);
+        gameBox.mirrorPlayers = false;
+        gameBox.narrowPhase = kernel;
+        MatchRandom random = new MatchRandom(seed);
+        for (int i = 0; i < count; i++) {
+            gameBox.addPlayer("p", 1e9, 1, 1 + (int) (random.nextDouble() * 400));
+            gameBox.world.x[i] = radius + random.nextDouble() * (side - 2 * radius);
+            gameBox.world.y[i] = radius + random.nextDouble() * (side - 2 * radius);
+            gameBox.generateRandomTarget(i);
+        }
+        return gameBox;
+    }
+
+    @Test
+    void vectorKernelFindsTheSameContactsAsTheScalarOne() {
+        assumeTrue(NarrowPhase.vectorAvailable(), "needs --add-modules jdk.incubator.vector");
+        for (int count : new int[] {5, 200, 3000}) {
+            for (double density : new double[] {0.1, 0.3, 3}) {
+                GameBox scalar = arena(count, density, count, new NarrowPhase());
+                GameBox vector = arena(count, density, count, new VectorNarrowPhase());
+                int touching = 0;
+                for (int tick = 0; tick < 30; tick++) {
+                    scalar.step(CONST.FIXED_STEP);
+                    vector.step(CONST.FIXED_STEP);
+                    String at = count + " players, density " + density + ", tick " + tick;
+                    touching += scalar.contactPairs;
+                    assertEquals(scalar.contactPairs, vector.contactPairs, at);
+                    assertArrayEquals(Arrays.copyOf(scalar.narrowPhase.contacts, scalar.contactPairs),
+                            Arrays.copyOf(vector.narrowPhase.contacts, vector.contactPairs), at);
+                    assertArrayEquals(Arrays.copyOf(scalar.world.x, count), Arrays.copyOf(vector.world.x, count), at);
+                    assertArrayEquals(Arrays.copyOf(scalar.world.y, count), Arrays.copyOf(vector.world.y, count), at);
+                }
+                if (count > 5 && density >= 0.3) assertTrue(touching > 0, "no contact to compare at " + count + ", " + density);
+            }
+        }
+    }
+}
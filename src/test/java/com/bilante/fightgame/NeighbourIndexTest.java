@@ -0,0 +1,72 @@
+package com.bilante.fightgame;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class NeighbourIndexTest {
+
+    /** @return the ids of every enemy of `self` alive, nearest first (lowest id first on ties), one by one **/
+    static List<Integer> byDistance(WorldState w, int self) {
+        List<Integer> enemies = new ArrayList<>();
+        for (int other = 0; other < w.size; other++) {
+            if (other != self && !w.dead[other]) enemies.add(other);
+        }
+        enemies.sort(Comparator.<Integer>comparingDouble(other -> squaredDistance(w, self, other))
+                .thenComparingInt(other -> other));
+        return enemies;
+    }
+
+    static double squaredDistance(WorldState w, int a, int b) {
+        double dx = w.x[b] - w.x[a];
+        double dy = w.y[b] - w.y[a];
+        return dx * dx + dy * dy;
+    }
+
+    /** @return the first `count` results of the last query of `index` **/
+    static int[] found(NeighbourIndex index, int count) {
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) ids[i] = index.found(i);
+        return ids;
+    }
+
+    /** arenas sparse to crowded with a third of the players dead, every query against a scan of every player **/
+    @Test
+    void queriesMatchAScanOfEveryPlayer() {
+        for (int count : new int[] {2, 30, 500}) {
+            for (double density : new double[] {0.02, 0.3, 2}) {
+                GameBox gameBox = NarrowPhaseTest.arena(count, density, count, new NarrowPhase());
+                WorldState w = gameBox.world;
+                MatchRandom random = new MatchRandom(count);
+                for (int i = 0; i < count; i++) {
+                    w.dead[i] = count > 2 && random.nextDouble() < 0.3;
+                }
+                NeighbourIndex index = new NeighbourIndex(gameBox.width, gameBox.height, count);
+                index.rebuild(w);
+                for (int self = 0; self < count; self++) {
+                    String at = count + " players, density " + density + ", player " + self;
+                    List<Integer> expected = byDistance(w, self);
+                    for (int k : new int[] {1, 4, 25, count}) {
+                        int[] nearest = expected.stream().limit(k).mapToInt(Integer::intValue).toArray();
+                        assertArrayEquals(nearest, found(index, index.nearest(self, k)), at + ", " + k + " nearest");
+                    }
+                    for (double radius : new double[] {5, 40, 150, 1e4}) {
+                        List<Integer> inside = new ArrayList<>();
+                        for (int other : expected) {
+                            if (squaredDistance(w, self, other) <= radius * radius) inside.add(other);
+                        }
+                        int[] within = inside.stream().mapToInt(Integer::intValue).sorted().toArray();
+                        int[] actual = found(index, index.within(self, radius));
+                        Arrays.sort(actual);
+                        assertArrayEquals(within, actual, at + ", within " + radius);
+                    }
+                }
+            }
+        }
+    }
+}
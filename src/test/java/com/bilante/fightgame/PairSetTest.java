@@ -0,0 +1,44 @@
+package com.bilante.fightgame;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PairSetTest {
+
+    /** random adds and removes among few entities, so probe runs collide and shift back, against a HashSet **/
+    @Test
+    void matchesAHashSet() {
+        MatchRandom random = new MatchRandom(5);
+        PairSet pairs = new PairSet();
+        Set<Long> expected = new HashSet<>();
+        for (int op = 0; op < 200_000; op++) {
+            int i = (int) (random.nextDouble() * 60);
+            int j = (int) (random.nextDouble() * 60);
+            if (i == j) continue;
+            long pair = PairSet.pair(i, j);
+            String at = "op " + op + ", pair " + i + " " + j;
+            if (random.nextDouble() < 0.5) {
+                assertEquals(expected.add(pair), pairs.add(pair), at);
+            } else {
+                assertEquals(expected.remove(pair), pairs.remove(pair), at);
+            }
+            assertEquals(expected.size(), pairs.size(), at);
+        }
+        for (int i = 0; i < 60; i++) {
+            for (int j = i + 1; j < 60; j++) {
+                long pair = PairSet.pair(i, j);
+                assertEquals(expected.contains(pair), pairs.contains(pair));
+            }
+        }
+    }
+
+    @Test
+    void pairIgnoresTheOrder() {
+        assertEquals(PairSet.pair(3, 7), PairSet.pair(7, 3));
+        assertEquals(3L << 32 | 7, PairSet.pair(7, 3));
+    }
+}
@@ -0,0 +1,82 @@
+package com.bilante.fightgame;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplayTest {
+
+    @TempDir
+    Path directory;
+
+    /** plays every tick of the recording next to the same match played again **/
+    @Test
+    void replayFollowsTheMatchItRecorded() throws IOException {
+        int hits = 0;
+        for (int index = 0; index < 12; index++) {
+            List<SidePanel.PlayerInput> roster = MatchTest.roster(index);
+            long seed = MatchRandom.seedFor(10, index);
+            Path file = directory.resolve(index + ".fgr");
+            Match recorded = new Match(roster, seed);
+            recorded.record(file);
+            recorded.run();
+
+            ReplayReader reader = new ReplayReader(file);
+            GameBox replayed = reader.createGameBox();
+            Match match = new Match(roster, seed);
+            GameBox original = match.gameBox;
+            assertWorldMatches(original, replayed);
+            while (match.isRunning()) {
+                match.tick();
+                assertTrue(reader.next(replayed), "the recording stops before tick " + original.ticks);
+                assertEquals(original.ticks, reader.tick());
+                assertWorldMatches(original, replayed);
+                int pairs = 0;
+                for (int p = 0; p < original.contactPairs; p++) {
+                    if (!original.counts(p)) continue;
+                    long contact = original.narrowPhase.contacts[p];
+                    assertEquals(NarrowPhase.first(contact), reader.hitA[pairs], "hit at tick " + original.ticks);
+                    assertEquals(NarrowPhase.second(contact), reader.hitB[pairs], "hit at tick " + original.ticks);
+                    pairs++;
+                }
+                assertEquals(pairs, reader.hitCount, "hits at tick " + original.ticks);
+                hits += pairs;
+            }
+            assertFalse(reader.next(replayed));
+        }
+        assertTrue(hits > 0, "no hit to compare");
+    }
+
+    /** a long match between two keyframes writes far less than every position of every tick **/
+    @Test
+    void deltasOnlyCarryThePlayersThatTurned() throws IOException {
+        Path file = directory.resolve("long.fgr");
+        Match match = new Match(MatchTest.roster(3), 3);
+        match.record(file);
+        Match.MatchResult result = match.run();
+        int players = MatchTest.roster(3).size();
+        long everyPosition = result.ticks() * (5 + players * 8L);
+        assertTrue(Files.size(file) < everyPosition / 2, Files.size(file) + " bytes for " + result.ticks() + " ticks");
+    }
+
+    static void assertWorldMatches(GameBox original, GameBox replayed) {
+        WorldState expected = original.world;
+        WorldState actual = replayed.world;
+        double tolerance = ReplayRecorder.POSITION_TOLERANCE + 1e-3; // plus the float rounding of the file
+        for (int i = 0; i < expected.size; i++) {
+            String at = "player " + i + " at tick " + original.ticks;
+            assertEquals(expected.x[i], actual.x[i], tolerance, at);
+            assertEquals(expected.y[i], actual.y[i], tolerance, at);
+            assertEquals((float) expected.health[i], (float) actual.health[i], at);
+            assertEquals(expected.dead[i], actual.dead[i], at);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.bilante.fightgame;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpatialGridTest {
+
+    /** @return every pair of the arena whose swept circles touch during the step, tested one against another **/
+    static long[] allPairs(GameBox gameBox) {
+        WorldState w = gameBox.world;
+        int n = w.size;
+        double minSquaredDistance = 4 * CONST.PLAYER_RADIUS * CONST.PLAYER_RADIUS;
+        long[] contacts = new long[16];
+        int count = 0;
+        for (int a = 0; a < n; a++) {
+            for (int b = a + 1; b < n; b++) {
+                double t = GameBox.impactTime(w.x[a] - w.x[b], w.y[a] - w.y[b],
+                        (w.intendedX[a] - w.x[a]) - (w.intendedX[b] - w.x[b]),
+                        (w.intendedY[a] - w.y[a]) - (w.intendedY[b] - w.y[b]), minSquaredDistance);
+                if (t > 1) continue;
+                if (count == contacts.length) contacts = Arrays.copyOf(contacts, count * 2);
+                contacts[count++] = (long) a << 32 | b;
+            }
+        }
+        return Arrays.copyOf(contacts, count);
+    }
+
+    /** random moves of up to `longestMove` px in every direction, past the arena too: the grid clamps them **/
+    static void move(GameBox gameBox, double longestMove, MatchRandom random) {
+        WorldState w = gameBox.world;
+        for (int i = 0; i < w.size; i++) {
+            double angle = random.nextDouble() * 2 * Math.PI;
+            double length = random.nextDouble() * longestMove;
+            w.intendedX[i] = w.x[i] + Math.cos(angle) * length;
+            w.intendedY[i] = w.y[i] + Math.sin(angle) * length;
+        }
+    }
+
+    @Test
+    void gridFindsTheContactsOfAnAllPairsScan() {
+        int compared = 0;
+        boolean grew = false;
+        for (int count : new int[] {40, 400, 3000}) {
+            for (double density : new double[] {0.05, 0.3, 2}) {
+                // still, a step within a cell, then steps of several cells
+                for (double longestMove : new double[] {0, 10, 60, 200}) {
+                    long seed = count + (long) longestMove;
+                    GameBox gameBox = NarrowPhaseTest.arena(count, density, seed, new NarrowPhase());
+                    double cellSize = gameBox.grid.cellSize;
+                    move(gameBox, longestMove, new MatchRandom(count));
+                    gameBox.checkPlayerCollisions();
+                    String at = count + " players, density " + density + ", moves up to " + longestMove + " px";
+                    long[] expected = allPairs(gameBox);
+                    assertArrayEquals(expected, Arrays.copyOf(gameBox.narrowPhase.contacts, gameBox.contactPairs), at);
+                    compared += expected.length;
+                    grew |= gameBox.grid.cellSize > cellSize;
+                }
+            }
+        }
+        assertTrue(compared > 1000, compared + " contacts compared");
+        assertTrue(grew, "no step outgrew the cells");
+    }
+
+    /** a few players in a large arena skip the buckets and test every pair, standing so the cells stay small **/
+    @Test
+    void sparseArenaTestsEveryPair() {
+        GameBox gameBox = GameBoxTest.arena();
+        MatchRandom random = new MatchRandom(3);
+        for (int i = 0; i < 12; i++) {
+            double x = 200 + random.nextDouble() * 100;
+            double y = 200 + random.nextDouble() * 100;
+            GameBoxTest.add(gameBox, 10, 1, 100, x, y, x, y);
+        }
+        assertTrue(gameBox.grid.isSparse(12));
+        move(gameBox, 0, random);
+        gameBox.checkPlayerCollisions();
+        assertEquals(12 * 11 / 2, gameBox.narrowPhase.candidateCount);
+        long[] expected = allPairs(gameBox);
+        assertTrue(expected.length > 0, "no contact to compare");
+        assertArrayEquals(expected, Arrays.copyOf(gameBox.narrowPhase.contacts, gameBox.contactPairs));
+    }
+}
@@ -0,0 +1,76 @@
+package com.bilante.fightgame;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpectatorServerTest {
+
+    /** a hello and a keyframe of several MB each, far past the queue of a small arena **/
+    @Test
+    void spectatorFollowsALargeRosterToTheEnd() throws Exception {
+        int count = 90_000;
+        int survivor = 45_000;
+        GameBox gameBox = new GameBox(20_000, 20_000, 1);
+        for (int i = 0; i < count; i++) {
+            gameBox.addPlayer("spectated player " + i, i == survivor ? 10 : 0, 1, 100); // the rest enter dead
+        }
+        gameBox.placePlayersOnGrid();
+        SpectatorServer server = new SpectatorServer(gameBox, 1, 0); // the client connects well before the first tick
+        CompletableFuture<SpectatorClient> connecting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return new SpectatorClient("localhost", server.port());
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        server.start();
+        try (SpectatorClient client = connecting.get(30, TimeUnit.SECONDS)) {
+            assertEquals(count, client.entities);
+            assertEquals("spectated player " + (count - 1), client.names[count - 1]);
+            client.start();
+            server.join();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (!client.isEnded() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(client.isFinished(), "the end of the match never came");
+            assertEquals(survivor, client.winner());
+            assertEquals(10, client.world.health[survivor]);
+            assertEquals(gameBox.world.x[survivor], client.world.x[survivor], gameBox.width / SpectatorServer.QUANTA);
+        } finally {
+            server.stop();
+        }
+    }
+
+    /** a server that goes away mid-match ends the stream without finishing it, the UI tells the two apart **/
+    @Test
+    void stoppedServerEndsWithoutAResult() throws Exception {
+        GameBox gameBox = new GameBox(CONST.GAME_WIDTH, CONST.GAME_HEIGHT, 16);
+        gameBox.addPlayer("a", 1e9, 1, 100);
+        gameBox.addPlayer("b", 1e9, 1, 100);
+        gameBox.placePlayersOnStart();
+        SpectatorServer server = new SpectatorServer(gameBox, 60, 0);
+        server.start();
+        try (SpectatorClient client = new SpectatorClient("localhost", server.port())) {
+            client.start();
+            Thread.sleep(200);
+            server.stop();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (!client.isEnded() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(client.isEnded(), "the lost connection went unnoticed");
+            assertFalse(client.isFinished());
+            assertEquals(-1, client.winner());
+        } finally {
+            server.stop();
+        }
+    }
+}
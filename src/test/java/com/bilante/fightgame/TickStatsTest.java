@@ -0,0 +1,68 @@
+package com.bilante.fightgame;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TickStatsTest {
+
+    /** every step time falls in a bucket whose bounds are within an eighth of it, the buckets in order **/
+    @Test
+    void bucketsHoldTheirStepTimes() {
+        for (long micros = 0; micros < 2_000_000; micros++) {
+            int bucket = TickStats.bucket(micros);
+            long upper = TickStats.upperBound(bucket);
+            assertTrue(upper >= micros, micros + " µs above its bucket");
+            assertTrue(bucket == 0 || TickStats.upperBound(bucket - 1) < micros, micros + " µs below its bucket");
+            assertTrue(upper - micros <= micros / 8, micros + " µs reported as " + upper);
+        }
+    }
+
+    /** percentiles of a full window against a sort of its step times, then once newer ticks pushed them out **/
+    @Test
+    void percentilesFollowTheWindow() {
+        TickStats stats = new TickStats();
+        assertEquals(-1, stats.percentile(0.5));
+        MatchRandom random = new MatchRandom(22);
+        long[] micros = new long[TickStats.WINDOW];
+        for (int t = 0; t < micros.length; t++) {
+            micros[t] = (long) Math.exp(random.nextDouble() * 12); // 1 µs to 160 ms
+            stats.record(micros[t], 0);
+        }
+        long[] sorted = micros.clone();
+        Arrays.sort(sorted);
+        for (double fraction : new double[] {0.01, 0.25, 0.5, 0.9, 0.99, 1}) {
+            long exact = sorted[(int) Math.ceil(fraction * sorted.length) - 1];
+            assertEquals(TickStats.upperBound(TickStats.bucket(exact)), stats.percentile(fraction), "p" + fraction);
+        }
+        for (int t = 0; t < TickStats.WINDOW - 1; t++) {
+            stats.record(700, 0);
+        }
+        assertEquals(TickStats.upperBound(TickStats.bucket(700)), stats.percentile(0.99));
+        stats.record(5000, 0);
+        assertEquals(TickStats.upperBound(TickStats.bucket(5000)), stats.percentile(1));
+        assertEquals(TickStats.upperBound(TickStats.bucket(700)), stats.percentile(0.99));
+    }
+
+    @Test
+    void allocationsAverageOverTheWindow() {
+        TickStats stats = new TickStats();
+        if (!TickStats.countsAllocations()) {
+            stats.record(10, 64);
+            assertEquals(-1, stats.allocatedPerTick());
+            return;
+        }
+        assertEquals(-1, stats.allocatedPerTick());
+        for (int t = 0; t < TickStats.WINDOW; t++) {
+            stats.record(10, 1000);
+        }
+        assertEquals(1000, stats.allocatedPerTick());
+        for (int t = 0; t < TickStats.WINDOW / 2; t++) {
+            stats.record(10, 0);
+        }
+        assertEquals(500, stats.allocatedPerTick());
+    }
+}
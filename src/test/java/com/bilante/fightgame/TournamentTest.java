@@ -0,0 +1,104 @@
+package com.bilante.fightgame;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TournamentTest {
+
+    static final List<String> NAMES = List.of("Smith, John", "the \"Rock\"", "two\nlines", "plain");
+
+    /** @return the records of `text` split into their fields, quoted fields unquoted (RFC 4180) **/
+    static List<List<String>> parseCsv(String text) {
+        List<List<String>> records = new ArrayList<>();
+        List<String> record = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                assertTrue(field.isEmpty(), "quote inside a field that doesn't start with one");
+                quoted = true;
+            } else if (c == ',') {
+                record.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                record.add(field.toString());
+                field.setLength(0);
+                records.add(record);
+                record = new ArrayList<>();
+            } else {
+                field.append(c);
+            }
+        }
+        assertFalse(quoted, "unterminated quoted field");
+        assertTrue(record.isEmpty() && field.isEmpty(), "last record without a line break");
+        return records;
+    }
+
+    static Tournament tournament() {
+        List<SidePanel.PlayerInput> roster = new ArrayList<>();
+        for (int i = 0; i < NAMES.size(); i++) {
+            SidePanel.PlayerInput input = Tournament.allSplits().get(i * 7);
+            SidePanel.PlayerInput named = new SidePanel.PlayerInput(input.damagePoints, input.speedPoints, input.healthPoints);
+            named.setName(NAMES.get(i));
+            roster.add(named);
+        }
+        return new Tournament(roster, 1, 5);
+    }
+
+    /** names with a comma, a quote or a line break read back whole from the match lines and the summary **/
+    @Test
+    void csvQuotesTheNamesThatNeedIt() throws Exception {
+        Tournament tournament = tournament();
+        StringWriter out = new StringWriter();
+        tournament.run(out, true, 2);
+        List<List<String>> matches = parseCsv(out.toString());
+        assertEquals(1 + tournament.matchCount(), matches.size());
+        for (List<String> match : matches.subList(1, matches.size())) {
+            assertEquals(10, match.size(), match.toString());
+            assertTrue(NAMES.contains(match.get(3)), match.get(3));
+            assertTrue(NAMES.contains(match.get(4)), match.get(4));
+            assertTrue(match.get(5).isEmpty() || Set.of(match.get(3), match.get(4)).contains(match.get(5)), match.get(5));
+        }
+
+        StringWriter summary = new StringWriter();
+        tournament.writeSummary(summary);
+        List<List<String>> players = parseCsv(summary.toString());
+        int columns = players.get(0).size();
+        for (int i = 0; i < NAMES.size(); i++) {
+            assertEquals(NAMES.get(i), players.get(i + 1).get(0));
+            assertEquals(columns, players.get(i + 1).size());
+        }
+    }
+
+    @Test
+    void csvFieldLeavesPlainValuesAlone() {
+        assertEquals("D3-S4-H3", Tournament.csvField("D3-S4-H3"));
+        assertEquals("\"a,b\"", Tournament.csvField("a,b"));
+        assertEquals("\"say \"\"hi\"\"\"", Tournament.csvField("say \"hi\""));
+        assertEquals("\"a\r\nb\"", Tournament.csvField("a\r\nb"));
+    }
+
+    @Test
+    void jsonStringEscapesQuotesAndControlCharacters() {
+        assertEquals("\"two\\nlines \\\"quoted\\\" back\\\\slash\\u0001\"",
+                Tournament.jsonString("two\nlines \"quoted\" back\\slash\u0001"));
+    }
+}
@@ -0,0 +1,57 @@
+package com.bilante.fightgame;
+
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.layout.Region;
+import javafx.scene.shape.Circle;
+import javafx.scene.shape.Shape;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ViewsTest {
+
+    /** @return the node tree under `node` with what its FXML sets: sizes, styles, geometry, paints and effects **/
+    static String describe(Node node) {
+        StringBuilder text = new StringBuilder();
+        describe(node, "", text);
+        return text.toString();
+    }
+
+    private static void describe(Node node, String indent, StringBuilder text) {
+        text.append(indent).append(node.getClass().getSimpleName());
+        if (!node.getStyle().isEmpty()) text.append(" style=").append(node.getStyle());
+        if (node instanceof Region region) {
+            text.append(" pref=").append(region.getPrefWidth()).append('x').append(region.getPrefHeight())
+                    .append(" min=").append(region.getMinWidth()).append('x').append(region.getMinHeight())
+                    .append(" max=").append(region.getMaxWidth()).append('x').append(region.getMaxHeight())
+                    .append(" padding=").append(region.getPadding());
+        }
+        if (node instanceof Circle circle) {
+            text.append(" at=").append(circle.getCenterX()).append(',').append(circle.getCenterY())
+                    .append(" radius=").append(circle.getRadius());
+        }
+        if (node instanceof Shape shape) {
+            text.append(" fill=").append(shape.getFill()).append(" stroke=").append(shape.getStroke())
+                    .append(" strokeWidth=").append(shape.getStrokeWidth());
+        }
+        if (node.getEffect() != null) text.append(" effect=").append(node.getEffect().getClass().getSimpleName());
+        text.append('\n');
+        if (node instanceof Parent parent) {
+            for (Node child : parent.getChildrenUnmodifiable()) {
+                describe(child, indent + "  ", text);
+            }
+        }
+    }
+
+    /**
+     * the arena built in code is the one gameBox-view.fxml describes, Scene Builder keeps editing the same view. The
+     * other views hold controls, which need a running toolkit
+     */
+    @Test
+    void arenaBuiltInCodeMatchesItsFxml() throws Exception {
+        Parent loaded = new FXMLLoader(Main.class.getResource("gameBox-view.fxml")).load();
+        assertEquals(describe(loaded), describe(new GameBoxController().buildView()));
+    }
+}
@@ -0,0 +1,110 @@
+package com.bilante.fightgame;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WorldImageTest {
+    @TempDir
+    Path directory;
+
+    /** an arena of 50 players 40 ticks in, a few of them dead **/
+    static GameBox arena() {
+        GameBox gameBox = NarrowPhaseTest.arena(50, 0.3, 21, new NarrowPhase());
+        for (int i = 0; i < 50; i += 7) {
+            gameBox.world.health[i] = 0;
+            gameBox.world.dead[i] = true;
+        }
+        for (int tick = 0; tick < 40; tick++) {
+            gameBox.step(CONST.FIXED_STEP);
+        }
+        return gameBox;
+    }
+
+    static void assertHolds(GameBox gameBox, WorldImage image) {
+        WorldState w = gameBox.world;
+        assertEquals(gameBox.ticks, image.tick());
+        assertEquals(w.size, image.size());
+        assertEquals(gameBox.width, image.width());
+        assertEquals(gameBox.height, image.height());
+        for (int i = 0; i < w.size; i++) {
+            assertEquals(w.x[i], image.x(i), "x of " + i);
+            assertEquals(w.y[i], image.y(i), "y of " + i);
+            assertEquals(w.targetX[i], image.targetX(i), "target x of " + i);
+            assertEquals(w.targetY[i], image.targetY(i), "target y of " + i);
+            assertEquals(w.health[i], image.health(i), "HP of " + i);
+            assertEquals(w.dead[i], image.isDead(i), "death of " + i);
+        }
+    }
+
+    /** what a tick publishes reads back the same in place, from the mapped file and from a saved snapshot **/
+    @Test
+    void publishedTickReadsBack() throws Exception {
+        GameBox gameBox = arena();
+        Path file = directory.resolve("world.img");
+        Path snapshot = directory.resolve("snapshot.img");
+        try (WorldImage image = new WorldImage(file, 64, gameBox.width, gameBox.height)) {
+            assertEquals(-1, image.tick());
+            long stamp = image.beginRead();
+            image.onTick(gameBox);
+            assertFalse(image.validate(stamp), "a read across a publish validated");
+            stamp = image.beginRead();
+            assertHolds(gameBox, image);
+            assertTrue(image.validate(stamp));
+            try (WorldImage reader = WorldImage.open(file)) {
+                assertHolds(gameBox, reader);
+            }
+            image.save(snapshot);
+        }
+        try (WorldImage saved = WorldImage.open(snapshot)) {
+            assertHolds(gameBox, saved);
+        }
+    }
+
+    /**
+     * a writer publishes ticks whose every x and HP, the first and the last column written, is the tick number while
+     * a reader follows: every read that validates holds one tick only
+     */
+    @Test
+    void validatedReadsAreNeverTorn() throws Exception {
+        GameBox gameBox = NarrowPhaseTest.arena(500, 0.3, 22, new NarrowPhase());
+        WorldState w = gameBox.world;
+        WorldImage image = new WorldImage(w.size, gameBox.width, gameBox.height);
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            for (long tick = 0; tick < 20_000; tick++) {
+                for (int i = 0; i < w.size; i++) {
+                    w.x[i] = tick;
+                    w.health[i] = tick;
+                }
+                image.publish(w, tick);
+            }
+            done.set(true);
+        });
+        writer.start();
+        int validated = 0;
+        int torn = 0;
+        while (!done.get()) {
+            long stamp = image.beginRead();
+            long tick = image.tick();
+            int size = image.size();
+            int matching = 0;
+            for (int i = 0; i < size; i++) {
+                if (image.x(i) == tick && image.health(i) == tick) matching++;
+            }
+            if (!image.validate(stamp) || tick == -1) continue; // torn, or nothing published yet
+            if (size != w.size || matching != size) torn++;
+            validated++;
+        }
+        writer.join();
+        assertEquals(0, torn, torn + " of " + validated + " validated reads mixed two ticks");
+        assertTrue(validated > 0, "no read validated");
+        assertEquals(19_999, image.tick());
+    }
+}